@@ -0,0 +1,107 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookingSystemBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 8, 0);
+    // Antal bokningar/avbokningar per mätning i SingleShotTime-benchmarks
+    private static final int BATCH = 1_000;
+
+    @Param({"10", "1000"})
+    private int roomCount;
+
+    @Param({"10", "1000"})
+    private int bookingsPerRoom;
+
+    @Param({"INDEXED", "COMPACT"})
+    private Room.Storage storage;
+
+    private BookingSystem bookingSystem;
+    private RecordingNotificationService notifications;
+    private List<String> bookingIdsToCancel;
+    private int nextRoom;
+    private int nextCancel;
+    private LocalDateTime nextFreeSlot;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        notifications = new RecordingNotificationService();
+        bookingSystem = new BookingSystem(() -> NOW, repository, notifications);
+        for (int r = 0; r < roomCount; r++) {
+            repository.save(new Room("r" + r, "Rum " + r, storage));
+        }
+        // Varje rum får en bokning per timme, med en ledig halvtimme emellan
+        for (int r = 0; r < roomCount; r++) {
+            for (int b = 0; b < bookingsPerRoom; b++) {
+                LocalDateTime start = NOW.plusHours(b);
+                bookingSystem.bookRoom("r" + r, start, start.plusMinutes(30));
+            }
+        }
+        bookingIdsToCancel = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            LocalDateTime start = NOW.plusHours(bookingsPerRoom + i);
+            bookingSystem.bookRoom("r" + (i % roomCount), start, start.plusMinutes(30));
+            bookingIdsToCancel.add(notifications.lastBookingId);
+        }
+        nextRoom = 0;
+        nextCancel = 0;
+        nextFreeSlot = NOW.plusHours(bookingsPerRoom + BATCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 10, batchSize = BATCH)
+    public boolean bookRoom() {
+        nextFreeSlot = nextFreeSlot.plusHours(1);
+        nextRoom = (nextRoom + 1) % roomCount;
+        return bookingSystem.bookRoom("r" + nextRoom, nextFreeSlot, nextFreeSlot.plusMinutes(30));
+    }
+
+    @Benchmark
+    public boolean bookRoomConflict() {
+        nextRoom = (nextRoom + 1) % roomCount;
+        LocalDateTime taken = NOW.plusHours(bookingsPerRoom / 2);
+        return bookingSystem.bookRoom("r" + nextRoom, taken, taken.plusMinutes(10));
+    }
+
+    @Benchmark
+    public void getAvailableRooms(Blackhole blackhole) {
+        LocalDateTime gap = NOW.plusHours(bookingsPerRoom / 2).plusMinutes(40);
+        blackhole.consume(bookingSystem.getAvailableRooms(gap, gap.plusMinutes(10)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 10, batchSize = BATCH)
+    public boolean cancelBooking() {
+        return bookingSystem.cancelBooking(bookingIdsToCancel.get(nextCancel++));
+    }
+
+    private static class RecordingNotificationService implements NotificationService {
+        private String lastBookingId;
+
+        @Override
+        public void sendBookingConfirmation(Booking booking) {
+            lastBookingId = booking.getId();
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) {
+        }
+    }
+}
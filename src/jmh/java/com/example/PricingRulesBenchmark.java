@@ -0,0 +1,81 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Ändringar ska kosta lika mycket oavsett antal regler och korgstorlek, medan en
+// omräkning av hela korgen (priceFromScratch) växer med korgen
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingRulesBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    private int ruleCount;
+
+    @Param({"10", "100", "1000"})
+    private int cartSize;
+
+    private PricingRules rules;
+    private ShoppingCart cart;
+    private Item existing;
+    private Item extra;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // Hälften flerköp, hälften paket om två varor, och några korgrabatter
+        List<PricingRule> ruleList = new ArrayList<>();
+        int barcode = 0;
+        for (int i = 0; i < ruleCount; i++) {
+            if (i % 2 == 0) {
+                ruleList.add(new MultiBuyRule(barcode++, 3, BigDecimal.valueOf(20)));
+            } else {
+                ruleList.add(new BundleRule(List.of(barcode, barcode + 1), BigDecimal.valueOf(15)));
+                barcode += 2;
+            }
+        }
+        ruleList.add(new CartDiscountRule(BigDecimal.valueOf(500), 5));
+        ruleList.add(new CartDiscountRule(BigDecimal.valueOf(2_000), 10));
+        rules = new PricingRules(ruleList);
+
+        cart = new ShoppingCart(rules);
+        for (int i = 0; i < cartSize; i++) {
+            cart.addItem(new Item(i, "Vara " + i, BigDecimal.valueOf(10 + i % 50), i % 4 == 0 ? 25 : 0, 1 + i % 3));
+        }
+        existing = new Item(cartSize / 2, "Vara " + cartSize / 2, BigDecimal.valueOf(10), 0, 1);
+        extra = new Item(cartSize, "Extra", BigDecimal.valueOf(99), 10, 1);
+    }
+
+    @Benchmark
+    public BigDecimal addExistingItem() {
+        cart.addItem(existing);
+        return cart.getItemTotal();
+    }
+
+    @Benchmark
+    public BigDecimal addAndRemoveItem() {
+        cart.addItem(extra);
+        cart.removeItem(extra);
+        return cart.getItemTotal();
+    }
+
+    @Benchmark
+    public BigDecimal getItemTotal() {
+        return cart.getItemTotal();
+    }
+
+    // Jämförelse: prissätter alla rader igen, som en naiv motor gör vid varje ändring
+    @Benchmark
+    public BigDecimal priceFromScratch() {
+        ShoppingCart repriced = new ShoppingCart(rules);
+        cart.getCart().forEach(repriced::addItem);
+        return repriced.getItemTotal();
+    }
+}
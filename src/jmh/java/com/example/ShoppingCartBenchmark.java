@@ -0,0 +1,48 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShoppingCartBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int cartSize;
+
+    private ShoppingCart cart;
+    private Item existing;
+    private Item extra;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cart = new ShoppingCart();
+        for (int i = 0; i < cartSize; i++) {
+            cart.addItem(new Item(i, "Vara " + i, BigDecimal.valueOf(10 + i % 50), i % 4 == 0 ? 25 : 0, 1));
+        }
+        existing = new Item(cartSize / 2, "Vara " + cartSize / 2, BigDecimal.valueOf(10), 0, 1);
+        extra = new Item(cartSize, "Extra", BigDecimal.valueOf(99), 10, 1);
+    }
+
+    @Benchmark
+    public void addExistingItem() {
+        cart.addItem(existing);
+    }
+
+    @Benchmark
+    public void addAndRemoveItem() {
+        cart.addItem(extra);
+        cart.removeItem(extra);
+    }
+
+    @Benchmark
+    public BigDecimal getItemTotal() {
+        return cart.getItemTotal();
+    }
+}
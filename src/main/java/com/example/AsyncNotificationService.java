@@ -0,0 +1,267 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lägger notifieringar på en begränsad kö och skickar dem från bakgrundstrådar,
+// så att bokningens svarstid inte beror på hur långsam notifieringstjänsten är.
+// Det som hämtas från kön i ett svep skickas med ett anrop per typ till tjänstens
+// sendBookingConfirmations och sendCancellationConfirmations. Ett misslyckat anrop
+// schemaläggs om med växande väntetid, utan att arbetaren väntar på det.
+public class AsyncNotificationService implements NotificationService, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 10_000;
+    private static final int DEFAULT_WORKERS = 4;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final Duration DEFAULT_BACKOFF = Duration.ofMillis(100);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(1);
+
+    private final NotificationService delegate;
+    private final BlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final ExecutorService workers;
+    private final CountDownLatch workersDone;
+    private final ScheduledExecutorService retryScheduler;
+    // Omförsök som väntar på sin tur och som pågår, close väntar in båda. Ett väntande
+    // omförsök som inte hinner köras räknas som misslyckat.
+    private final Set<Retry> waitingRetries = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger runningRetries = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public static AsyncNotificationService start(NotificationService delegate) {
+        return start(delegate, DEFAULT_CAPACITY, DEFAULT_WORKERS, DEFAULT_BATCH_SIZE, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF);
+    }
+
+    // Arbetarna startas först när objektet är färdigbyggt
+    public static AsyncNotificationService start(NotificationService delegate,
+                                                 int capacity,
+                                                 int workerCount,
+                                                 int batchSize,
+                                                 int maxAttempts,
+                                                 Duration initialBackoff) {
+        AsyncNotificationService service =
+                new AsyncNotificationService(delegate, capacity, workerCount, batchSize, maxAttempts, initialBackoff);
+        for (int i = 0; i < workerCount; i++) {
+            service.workers.execute(service::drainQueue);
+        }
+        return service;
+    }
+
+    private AsyncNotificationService(NotificationService delegate,
+                                     int capacity,
+                                     int workerCount,
+                                     int batchSize,
+                                     int maxAttempts,
+                                     Duration initialBackoff) {
+        if (capacity <= 0 || workerCount <= 0 || batchSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("Kapacitet, antal arbetare, batchstorlek och försök måste vara positiva");
+        }
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.workers = Executors.newVirtualThreadPerTaskExecutor();
+        this.workersDone = new CountDownLatch(workerCount);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void sendBookingConfirmation(Booking booking) throws NotificationException {
+        enqueue(new Notification(Type.BOOKING, booking));
+    }
+
+    @Override
+    public void sendCancellationConfirmation(Booking booking) throws NotificationException {
+        enqueue(new Notification(Type.CANCELLATION, booking));
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getRetryCount() {
+        return retried.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Slutar ta emot nya notifieringar och väntar tills kön är tömd och omförsöken klara
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT);
+    }
+
+    // Omförsök som inte hunnit köras när tiden gått ut räknas som misslyckade
+    void close(Duration timeout) {
+        closed = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            workersDone.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            while ((!waitingRetries.isEmpty() || runningRetries.get() > 0) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            stopRetries();
+            workers.shutdown();
+            workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Avbruten stängning lämnar det som är kvar åt arbetarna
+            stopRetries();
+            workers.shutdown();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Notification notification) throws NotificationException {
+        if (closed || !queue.offer(notification)) {
+            dropped.incrementAndGet();
+            throw new NotificationException("Notifieringskön är full eller stängd");
+        }
+    }
+
+    private void drainQueue() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Notification first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                List<Booking> bookings = new ArrayList<>();
+                List<Booking> cancellations = new ArrayList<>();
+                for (Notification notification : batch) {
+                    (notification.type() == Type.BOOKING ? bookings : cancellations).add(notification.booking());
+                }
+                if (!bookings.isEmpty()) {
+                    deliver(Type.BOOKING, bookings, 1, initialBackoffMillis);
+                }
+                if (!cancellations.isEmpty()) {
+                    deliver(Type.CANCELLATION, cancellations, 1, initialBackoffMillis);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workersDone.countDown();
+        }
+    }
+
+    private void deliver(Type type, List<Booking> bookings, int attempt, long backoff) {
+        try {
+            if (type == Type.BOOKING) {
+                delegate.sendBookingConfirmations(bookings);
+            } else {
+                delegate.sendCancellationConfirmations(bookings);
+            }
+            sent.addAndGet(bookings.size());
+        } catch (NotificationException | RuntimeException e) {
+            if (attempt >= maxAttempts) {
+                failed.addAndGet(bookings.size());
+                return;
+            }
+            retried.addAndGet(bookings.size());
+            scheduleRetry(new Retry(type, bookings, attempt + 1, backoff * 2), backoff);
+        }
+    }
+
+    private void scheduleRetry(Retry retry, long delayMillis) {
+        waitingRetries.add(retry);
+        try {
+            retryScheduler.schedule(() -> submitRetry(retry), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            abandon(retry);
+        }
+    }
+
+    private void submitRetry(Retry retry) {
+        try {
+            workers.execute(() -> runRetry(retry));
+        } catch (RejectedExecutionException e) {
+            abandon(retry);
+        }
+    }
+
+    // Räknas som pågående innan det lämnar väntelistan, så close aldrig ser det som varken eller
+    private void runRetry(Retry retry) {
+        runningRetries.incrementAndGet();
+        try {
+            if (waitingRetries.remove(retry)) {
+                deliver(retry.type, retry.bookings, retry.attempt, retry.backoff);
+            }
+        } finally {
+            runningRetries.decrementAndGet();
+        }
+    }
+
+    private void abandon(Retry retry) {
+        if (waitingRetries.remove(retry)) {
+            failed.addAndGet(retry.bookings.size());
+        }
+    }
+
+    private void stopRetries() {
+        retryScheduler.shutdownNow();
+        for (Retry retry : List.copyOf(waitingRetries)) {
+            abandon(retry);
+        }
+    }
+
+    private enum Type {
+        BOOKING, CANCELLATION
+    }
+
+    private record Notification(Type type, Booking booking) {
+    }
+
+    // Jämförs på identitet, två omförsök med samma innehåll är ändå olika omförsök
+    private static final class Retry {
+        private final Type type;
+        private final List<Booking> bookings;
+        private final int attempt;
+        private final long backoff;
+
+        private Retry(Type type, List<Booking> bookings, int attempt, long backoff) {
+            this.type = type;
+            this.bookings = bookings;
+            this.attempt = attempt;
+            this.backoff = backoff;
+        }
+    }
+}
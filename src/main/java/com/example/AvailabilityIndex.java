@@ -0,0 +1,253 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Rum som sparas eller tas bort efter att indexet byggts måste anmälas med roomAdded och
+// roomRemoved, annars syns de inte (eller syns kvar) i findAvailableRooms
+public class AvailabilityIndex {
+    private final long bucketSeconds;
+    private final Map<String, Integer> slotByRoomId = new HashMap<>();
+    // null för borttagna rum, deras platser återanvänds
+    private final List<Room> roomsBySlot = new ArrayList<>();
+    private final BitSet freeSlots = new BitSet();
+    // Per rum (slot) de tidsfack som har minst en enstaka bokning, null om inga
+    private final List<BusyBuckets> busyBucketsBySlot = new ArrayList<>();
+    // Rum med återkommande bokningar finns inte i facken och kontrolleras alltid exakt
+    private final BitSet roomsWithRecurringBookings = new BitSet();
+    // Rum vars bokningar spänner över fler fack än en BitSet rymmer, kontrolleras alltid exakt
+    private final BitSet roomsOutsideBuckets = new BitSet();
+    private boolean initialized;
+
+    public AvailabilityIndex(Duration bucketSize) {
+        if (bucketSize == null || bucketSize.getSeconds() <= 0 || bucketSize.getNano() != 0) {
+            throw new IllegalArgumentException("Tidsfackets storlek måste vara ett positivt antal hela sekunder");
+        }
+        this.bucketSeconds = bucketSize.getSeconds();
+    }
+
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    // Bygger indexet från rooms vid första anropet. Rummen hämtas under indexets lås, så att
+    // ett samtidigt roomAdded inte kan hamna före bygget och skrivas över.
+    public synchronized void initializeIfNeeded(Supplier<? extends Collection<Room>> rooms) {
+        if (!initialized) {
+            rebuild(rooms.get());
+        }
+    }
+
+    public synchronized void rebuild(Collection<Room> rooms) {
+        slotByRoomId.clear();
+        roomsBySlot.clear();
+        freeSlots.clear();
+        busyBucketsBySlot.clear();
+        roomsWithRecurringBookings.clear();
+        roomsOutsideBuckets.clear();
+        for (Room room : rooms) {
+            int slot = register(room);
+            for (Booking booking : room.getBookings()) {
+                markBusy(slot, booking);
+            }
+            roomsWithRecurringBookings.set(slot, !room.getRecurringBookings().isEmpty());
+        }
+        initialized = true;
+    }
+
+    // Nytt rum, eller en ny instans av ett känt rum vars fack räknas om
+    public synchronized void roomAdded(Room room) {
+        reindex(register(room), room);
+    }
+
+    public synchronized void roomRemoved(String roomId) {
+        Integer slot = slotByRoomId.remove(roomId);
+        if (slot == null) {
+            return;
+        }
+        clearSlot(slot);
+        roomsWithRecurringBookings.clear(slot);
+        roomsBySlot.set(slot, null);
+        freeSlots.set(slot);
+    }
+
+    public synchronized void bookingAdded(Room room, Booking booking) {
+        markBusy(register(room), booking);
+    }
+
+    // Facken rensas som ett intervall och de enstaka bokningar som finns kvar i dem sätts igen,
+    // så kostnaden beror på antalet bokningar där och inte på hur många fack bokningen täcker.
+    // Återkommande bokningar ligger inte i facken.
+    public synchronized void bookingRemoved(Room room, Booking booking) {
+        int slot = register(room);
+        BusyBuckets busy = busyBucketsBySlot.get(slot);
+        if (busy == null) {
+            return;
+        }
+        long first = bucketOf(booking.getStartTime());
+        long last = bucketOf(booking.getEndTime());
+        busy.clear(first, last);
+        LocalDateTime from = bucketStart(first);
+        LocalDateTime to = bucketStart(last + 1).minusNanos(1);
+        for (Booking remaining : room.getSingleBookingsBetween(from, to)) {
+            busy.set(Math.max(first, bucketOf(remaining.getStartTime())), Math.min(last, bucketOf(remaining.getEndTime())));
+        }
+        if (busy.isEmpty()) {
+            busyBucketsBySlot.set(slot, null);
+        }
+    }
+
+    // Räknar om rummets alla fack, så att inget fack kan bli kvar som upptaget efter en ändrad serie
+    public synchronized void recurringBookingsChanged(Room room) {
+        reindex(register(room), room);
+    }
+
+    public synchronized List<Room> findAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
+        long first = bucketOf(startTime);
+        long last = bucketOf(endTime);
+        // Ett fack helt inom intervallet ger ett säkert besked, kantfacken måste kontrolleras exakt
+        long firstFull = bucketStart(first).isBefore(startTime) ? first + 1 : first;
+        long lastFull = bucketStart(last + 1).isAfter(endTime) ? last - 1 : last;
+
+        List<Room> available = new ArrayList<>();
+        for (int slot = 0; slot < roomsBySlot.size(); slot++) {
+            Room room = roomsBySlot.get(slot);
+            if (room == null) {
+                continue;
+            }
+            BusyBuckets busy = busyBucketsBySlot.get(slot);
+            if (busy != null && busy.anySet(firstFull, lastFull)) {
+                continue;
+            }
+            boolean uncertain = (busy != null && busy.anySet(first, last))
+                    || roomsWithRecurringBookings.get(slot)
+                    || roomsOutsideBuckets.get(slot);
+            if (!uncertain || room.isAvailable(startTime, endTime)) {
+                available.add(room);
+            }
+        }
+        return available;
+    }
+
+    private int register(Room room) {
+        Integer slot = slotByRoomId.get(room.getId());
+        if (slot != null) {
+            roomsBySlot.set(slot, room);
+            return slot;
+        }
+        // Lediga platser har redan rensats i roomRemoved
+        int free = freeSlots.nextSetBit(0);
+        if (free >= 0) {
+            freeSlots.clear(free);
+            slotByRoomId.put(room.getId(), free);
+            roomsBySlot.set(free, room);
+            return free;
+        }
+        slotByRoomId.put(room.getId(), roomsBySlot.size());
+        roomsBySlot.add(room);
+        busyBucketsBySlot.add(null);
+        return roomsBySlot.size() - 1;
+    }
+
+    // Går igenom rummets alla bokningar, används bara när ett helt rum ändras
+    private void reindex(int slot, Room room) {
+        clearSlot(slot);
+        for (Booking booking : room.getBookings()) {
+            markBusy(slot, booking);
+        }
+        roomsWithRecurringBookings.set(slot, !room.getRecurringBookings().isEmpty());
+    }
+
+    private void clearSlot(int slot) {
+        busyBucketsBySlot.set(slot, null);
+        roomsOutsideBuckets.clear(slot);
+    }
+
+    private void markBusy(int slot, Booking booking) {
+        if (roomsOutsideBuckets.get(slot)) {
+            return;
+        }
+        BusyBuckets busy = busyBucketsBySlot.get(slot);
+        if (busy == null) {
+            busy = new BusyBuckets();
+            busyBucketsBySlot.set(slot, busy);
+        }
+        if (!busy.set(bucketOf(booking.getStartTime()), bucketOf(booking.getEndTime()))) {
+            busyBucketsBySlot.set(slot, null);
+            roomsOutsideBuckets.set(slot);
+        }
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    private LocalDateTime bucketStart(long bucket) {
+        return LocalDateTime.ofEpochSecond(bucket * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    // Ett rums upptagna fack som bitar räknade från origin, så att en bokning sätts och
+    // rensas som ett intervall av fack i stället för ett fack i taget
+    private static final class BusyBuckets {
+        private long origin;
+        private BitSet bits = new BitSet();
+
+        // false om facken inte längre ryms i en BitSet, då lämnas den oförändrad
+        private boolean set(long first, long last) {
+            if (bits.isEmpty()) {
+                origin = first;
+            }
+            long newOrigin = Math.min(origin, first);
+            long end = Math.max(origin + bits.length(), last + 1);
+            if (end - newOrigin > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (newOrigin < origin) {
+                bits = shifted(bits, (int) (origin - newOrigin));
+                origin = newOrigin;
+            }
+            bits.set((int) (first - origin), (int) (last + 1 - origin));
+            return true;
+        }
+
+        private void clear(long first, long last) {
+            long from = Math.max(first, origin);
+            long to = Math.min(last + 1, origin + bits.length());
+            if (from < to) {
+                bits.clear((int) (from - origin), (int) (to - origin));
+            }
+        }
+
+        private boolean anySet(long first, long last) {
+            long from = Math.max(first, origin);
+            if (from > last || from >= origin + bits.length()) {
+                return false;
+            }
+            int next = bits.nextSetBit((int) (from - origin));
+            return next >= 0 && next <= last - origin;
+        }
+
+        private boolean isEmpty() {
+            return bits.isEmpty();
+        }
+
+        // Flyttar varje sammanhängande följd av satta bitar, inte varje bit
+        private static BitSet shifted(BitSet bits, int distance) {
+            BitSet result = new BitSet(bits.length() + distance);
+            for (int from = bits.nextSetBit(0); from >= 0; from = bits.nextSetBit(from)) {
+                int to = bits.nextClearBit(from);
+                result.set(from + distance, to + distance);
+                from = to;
+            }
+            return result;
+        }
+    }
+}
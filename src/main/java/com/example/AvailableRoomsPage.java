@@ -0,0 +1,7 @@
+package com.example;
+
+import java.util.List;
+
+// nextCursor är id:t på sista rummet när sidan blev full, annars null
+public record AvailableRoomsPage(List<Room> rooms, String nextCursor) {
+}
@@ -0,0 +1,6 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+public record AvailableSlot(Room room, LocalDateTime startTime, LocalDateTime endTime) {
+}
@@ -0,0 +1,5 @@
+package com.example;
+
+// booking är satt endast när status är OK
+public record BatchBookingResult(BookingRequest request, BookingStatus status, Booking booking) {
+}
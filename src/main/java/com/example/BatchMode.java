@@ -0,0 +1,8 @@
+package com.example;
+
+public enum BatchMode {
+    // Antingen bokas alla förfrågningar eller ingen
+    ATOMIC,
+    // Varje förfrågan bokas om den kan, oberoende av de andra
+    BEST_EFFORT
+}
@@ -0,0 +1,12 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Lagring för avslutade bokningar som flyttats ut ur rummen. Bara tillägg, inga ändringar.
+public interface BookingArchive {
+    void append(List<Booking> bookings);
+
+    // Arkiverade bokningar som överlappar [from, to], i alla rum om roomId är null
+    List<Booking> findBookings(String roomId, LocalDateTime from, LocalDateTime to);
+}
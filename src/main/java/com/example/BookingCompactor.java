@@ -0,0 +1,72 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Flyttar med jämna mellanrum avslutade bokningar till arkivet, så att rummen bara
+// innehåller pågående och kommande bokningar. Vad som är avslutat avgör BookingSystems TimeProvider.
+public class BookingCompactor implements AutoCloseable {
+    private final BookingSystem bookingSystem;
+    private final BookingArchive archive;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+
+    // Schemaläggningen startas först när objektet är färdigbyggt
+    public static BookingCompactor start(BookingSystem bookingSystem, BookingArchive archive, Duration interval) {
+        BookingCompactor compactor = new BookingCompactor(bookingSystem, archive, interval);
+        compactor.scheduler.scheduleWithFixedDelay(compactor::runSafely,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        return compactor;
+    }
+
+    private BookingCompactor(BookingSystem bookingSystem, BookingArchive archive, Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Intervallet för arkivering måste vara positivt");
+        }
+        this.bookingSystem = bookingSystem;
+        this.archive = archive;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Kör en arkivering direkt på anroparens tråd och returnerar antalet flyttade bokningar
+    public int compactNow() {
+        int count = bookingSystem.archiveFinishedBookings(archive);
+        archived.addAndGet(count);
+        return count;
+    }
+
+    public long getArchivedCount() {
+        return archived.get();
+    }
+
+    public long getFailedRunCount() {
+        return failedRuns.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSafely() {
+        try {
+            compactNow();
+        } catch (RuntimeException e) {
+            // Ett misslyckat varv får inte stoppa schemaläggningen, nästa varv försöker igen
+            failedRuns.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+public record BookingCreated(Booking booking, LocalDateTime occurredAt) implements BookingEvent {
+}
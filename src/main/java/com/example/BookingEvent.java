@@ -0,0 +1,9 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+// Ändring publicerad av BookingSystem, occurredAt enligt systemets TimeProvider
+public sealed interface BookingEvent
+        permits BookingCreated, BookingCancelled, RecurringBookingCreated, RecurringBookingCancelled {
+    LocalDateTime occurredAt();
+}
@@ -0,0 +1,144 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Ringbuffert med bokningshändelser utan lås. Publicering tar ett sekvensnummer och skriver
+// platsen, och väntar aldrig på prenumeranterna. Varje prenumerant läser i egen takt från
+// sin egen position. En prenumerant som hamnar mer än kapaciteten efter blir omsprungen,
+// hoppar fram till äldsta kvarvarande händelse och räknar det den missat. Den får då
+// läsa om läget från RoomRepository.
+public class BookingEventFeed {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<SequencedBookingEvent> slots;
+    // Nästa sekvensnummer att dela ut
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public BookingEventFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BookingEventFeed(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Kapaciteten måste vara en tvåpotens");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Returnerar händelsens sekvensnummer
+    public long publish(BookingEvent event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Händelse kan inte vara null");
+        }
+        long sequence = nextSequence.getAndIncrement();
+        SequencedBookingEvent entry = new SequencedBookingEvent(sequence, event);
+        int slot = (int) (sequence & mask);
+        while (true) {
+            SequencedBookingEvent current = slots.get(slot);
+            // En publicerare som stått still ett helt varv får inte skriva över en nyare händelse
+            if (current != null && current.sequence() > sequence) {
+                break;
+            }
+            if (slots.compareAndSet(slot, current, entry)) {
+                break;
+            }
+        }
+        return sequence;
+    }
+
+    // Prenumeranten ser händelser som publiceras efter anropet
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription(nextSequence.get());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+
+    // Hur många fler händelser som kan publiceras innan den långsammaste prenumeranten blir
+    // omsprungen. Den som publicerar kan använda det för att sakta ner eller varna.
+    public long getRemainingCapacity() {
+        long published = nextSequence.get();
+        long remaining = capacity;
+        for (Subscription subscription : subscriptions) {
+            remaining = Math.min(remaining, capacity - (published - subscription.cursor));
+        }
+        return Math.max(0, remaining);
+    }
+
+    // Läses av en tråd i taget
+    public final class Subscription implements AutoCloseable {
+        private volatile long cursor;
+        private volatile long missed;
+
+        private Subscription(long cursor) {
+            this.cursor = cursor;
+        }
+
+        // Flyttar upp till max händelser i ordning till sink utan att vänta, returnerar antalet
+        public int poll(List<? super SequencedBookingEvent> sink, int max) {
+            int count = 0;
+            long position = cursor;
+            while (count < max) {
+                SequencedBookingEvent entry = slots.get((int) (position & mask));
+                if (entry == null || entry.sequence() < position) {
+                    // Inte publicerad än, eller sekvensnumret är taget men platsen ännu inte skriven
+                    break;
+                }
+                if (entry.sequence() > position) {
+                    long oldest = entry.sequence() - capacity + 1;
+                    missed += oldest - position;
+                    position = oldest;
+                    continue;
+                }
+                sink.add(entry);
+                position++;
+                count++;
+            }
+            cursor = position;
+            return count;
+        }
+
+        // Som poll, men väntar upp till timeout på minst en händelse
+        public int poll(List<? super SequencedBookingEvent> sink, int max, Duration timeout) {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            int count = poll(sink, max);
+            while (count == 0 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(50_000);
+                count = poll(sink, max);
+            }
+            return count;
+        }
+
+        // Publicerade händelser som ännu inte lästs
+        public long getLag() {
+            return Math.max(0, nextSequence.get() - cursor);
+        }
+
+        // Händelser som skrevs över innan de hann läsas
+        public long getMissedCount() {
+            return missed;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Intervallträd över bokningar: en treap sorterad på starttid och id där varje nod känner
+// den senaste sluttiden i sitt delträd. Delträd som slutar före ett sökintervall hoppas över,
+// så en enstaka lång bokning gör inte att alla senare sökningar går igenom hela rummet.
+// Prioriteterna är pseudoslumpmässiga, så trädet är balanserat i förväntan.
+final class BookingIntervalTree {
+    private static final Comparator<Booking> ORDER =
+            Comparator.comparing(Booking::getStartTime).thenComparing(Booking::getId);
+
+    private Node root;
+    private long insertions;
+
+    // Bokningen får inte redan finnas i trädet
+    void add(Booking booking) {
+        root = insert(root, new Node(booking, priority(insertions++)));
+    }
+
+    void remove(Booking booking) {
+        root = delete(root, booking);
+    }
+
+    // O(log n): finns ett delträd till vänster som når startTime och ändå inte överlappar,
+    // börjar det efter endTime, och då gör hela högra delträdet det också
+    boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime) {
+        Node node = root;
+        while (node != null) {
+            if (node.booking.overlaps(startTime, endTime)) {
+                return true;
+            }
+            if (node.left != null && !node.left.maxEnd.isBefore(startTime)) {
+                node = node.left;
+            } else if (node.booking.getStartTime().isAfter(endTime)) {
+                return false;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    // Bokningar i startordning som slutar tidigast endingFrom och börjar senast startingUntil,
+    // som kan vara null för att inte begränsa. Läses lättjefullt.
+    Stream<Booking> stream(LocalDateTime endingFrom, LocalDateTime startingUntil) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new RangeIterator(endingFrom, startingUntil), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (ORDER.compare(added.booking, node.booking) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, Booking booking) {
+        if (node == null) {
+            return null;
+        }
+        int order = ORDER.compare(booking, node.booking);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        if (order < 0) {
+            node.left = delete(node.left, booking);
+        } else {
+            node.right = delete(node.right, booking);
+        }
+        node.update();
+        return node;
+    }
+
+    // Alla i left sorteras före alla i right
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node top = node.left;
+        node.left = top.right;
+        node.update();
+        top.right = node;
+        top.update();
+        return top;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node top = node.right;
+        node.right = top.left;
+        node.update();
+        top.left = node;
+        top.update();
+        return top;
+    }
+
+    private static long priority(long sequence) {
+        long z = (sequence + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Node {
+        private final Booking booking;
+        private final long priority;
+        private Node left;
+        private Node right;
+        // Senaste sluttiden i delträdet
+        private LocalDateTime maxEnd;
+
+        private Node(Booking booking, long priority) {
+            this.booking = booking;
+            this.priority = priority;
+            this.maxEnd = booking.getEndTime();
+        }
+
+        private void update() {
+            LocalDateTime end = booking.getEndTime();
+            if (left != null && left.maxEnd.isAfter(end)) {
+                end = left.maxEnd;
+            }
+            if (right != null && right.maxEnd.isAfter(end)) {
+                end = right.maxEnd;
+            }
+            maxEnd = end;
+        }
+    }
+
+    // Inordning med en stack, delträd vars senaste sluttid är före endingFrom läggs aldrig på
+    private final class RangeIterator implements Iterator<Booking> {
+        private final LocalDateTime endingFrom;
+        private final LocalDateTime startingUntil;
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private Booking next;
+
+        private RangeIterator(LocalDateTime endingFrom, LocalDateTime startingUntil) {
+            this.endingFrom = endingFrom;
+            this.startingUntil = startingUntil;
+            pushLeft(root);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Booking next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Booking current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (startingUntil != null && node.booking.getStartTime().isAfter(startingUntil)) {
+                    stack.clear();
+                    return;
+                }
+                pushLeft(node.right);
+                if (!node.booking.getEndTime().isBefore(endingFrom)) {
+                    next = node.booking;
+                    return;
+                }
+            }
+        }
+
+        private void pushLeft(Node node) {
+            while (node != null && !node.maxEnd.isBefore(endingFrom)) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
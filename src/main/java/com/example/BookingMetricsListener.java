@@ -0,0 +1,42 @@
+package com.example;
+
+import java.util.List;
+
+// Mätpunkter från BookingSystem. Anropas på bokningens tråd, så implementationer ska vara
+// snabba, trådsäkra och inte allokera. Alla metoder gör ingenting som standard.
+public interface BookingMetricsListener {
+    BookingMetricsListener NONE = new BookingMetricsListener() {
+    };
+
+    enum Operation {
+        BOOK_ROOM,
+        BOOK_ROOMS,
+        BOOK_RECURRING_ROOM,
+        CANCEL_BOOKING,
+        CANCEL_RECURRING_BOOKING,
+        GET_AVAILABLE_ROOMS,
+        REPOSITORY_READ,
+        REPOSITORY_WRITE
+    }
+
+    // Tid för ett helt anrop, även när det slutade med undantag
+    default void operationCompleted(Operation operation, long nanos) {
+    }
+
+    // Ogiltig förfrågan, tid i dåtid, okänt rum eller avbokning av påbörjad bokning
+    default void requestRejected(Operation operation) {
+    }
+
+    default void bookingConflicted(Operation operation) {
+    }
+
+    default void notificationFailed(Booking booking, NotificationException exception) {
+    }
+
+    // Ett massutskick som misslyckades, ingen av bokningarna räknas som notifierad
+    default void notificationsFailed(List<Booking> bookings, NotificationException exception) {
+        for (Booking booking : bookings) {
+            notificationFailed(booking, exception);
+        }
+    }
+}
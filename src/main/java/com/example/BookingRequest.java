@@ -0,0 +1,6 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+public record BookingRequest(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+}
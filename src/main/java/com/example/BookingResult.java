@@ -0,0 +1,10 @@
+package com.example;
+
+// booking är satt endast när status är OK, message endast när förfrågan avvisades som
+// INVALID, PAST eller NO_SUCH_ROOM
+public record BookingResult(BookingStatus status, Booking booking, String message) {
+
+    static BookingResult rejected(BookingStatus status, String message) {
+        return new BookingResult(status, null, message);
+    }
+}
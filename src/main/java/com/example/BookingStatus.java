@@ -0,0 +1,11 @@
+package com.example;
+
+public enum BookingStatus {
+    OK,
+    INVALID,
+    PAST,
+    NO_SUCH_ROOM,
+    CONFLICT,
+    // Giltig förfrågan som inte bokades eftersom en annan i samma atomära batch misslyckades
+    ABORTED
+}
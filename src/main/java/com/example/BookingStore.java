@@ -0,0 +1,35 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Lagring av ett rums enskilda bokningar. Room synkroniserar alla anrop.
+interface BookingStore {
+    // null om bokningen kan lagras, annars varför inte. add kastar bara för bokningar som avvisas här.
+    String rejectionReason(Booking booking);
+
+    // Ersätter en befintlig bokning med samma id
+    void add(Booking booking);
+
+    void remove(String bookingId);
+
+    // Tar bort och returnerar bokningar som slutat före time
+    List<Booking> removeEndedBefore(LocalDateTime time);
+
+    boolean contains(String bookingId);
+
+    // null om bokningen inte finns
+    Booking get(String bookingId);
+
+    Collection<Booking> all();
+
+    boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime);
+
+    // Bokningar som kan överlappa [startTime, endTime], de måste fortfarande kontrolleras exakt
+    Stream<Booking> candidates(LocalDateTime startTime, LocalDateTime endTime);
+
+    // Bokningar i stigande startordning, från den första som kan sluta vid time eller senare
+    Stream<Booking> inStartOrderFrom(LocalDateTime time);
+}
@@ -1,56 +1,323 @@
 package com.example;
 
+import com.example.BookingMetricsListener.Operation;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class BookingSystem {
     private final TimeProvider timeProvider;
     private final RoomRepository roomRepository;
     private final NotificationService notificationService;
+    private final BookingIdGenerator bookingIdGenerator;
+    private final BookingMetricsListener metrics;
+    // Valfritt, utan flöde publiceras inga händelser
+    private final BookingEventFeed eventFeed;
+    // Valfritt, utan index söks alla rum igenom i getAvailableRooms
+    private final AvailabilityIndex availabilityIndex;
+    // bokning-id -> rum-id för bokningar gjorda genom systemet
+    private final Map<String, String> roomIdByBookingId = new ConcurrentHashMap<>();
+    // återkommande boknings-id -> rum-id
+    private final Map<String, String> roomIdByRecurringBookingId = new ConcurrentHashMap<>();
+    // Ett lås per rum, så att bokningar i olika rum aldrig väntar på varandra. Rum-id från
+    // förfrågningar får ett lås först när rummet har hittats, så okända id fyller inte kartan.
+    private final Map<String, ReentrantLock> roomLocks = new ConcurrentHashMap<>();
 
     public BookingSystem(TimeProvider timeProvider,
                          RoomRepository roomRepository,
                          NotificationService notificationService) {
-        this.timeProvider = timeProvider;
-        this.roomRepository = roomRepository;
-        this.notificationService = notificationService;
+        this(builder(timeProvider, roomRepository, notificationService));
+    }
+
+    // För de valfria delarna
+    public static Builder builder(TimeProvider timeProvider,
+                                  RoomRepository roomRepository,
+                                  NotificationService notificationService) {
+        return new Builder(timeProvider, roomRepository, notificationService);
+    }
+
+    private BookingSystem(Builder builder) {
+        this.timeProvider = builder.timeProvider;
+        this.notificationService = builder.notificationService;
+        this.availabilityIndex = builder.availabilityIndex;
+        this.bookingIdGenerator = builder.bookingIdGenerator != null ? builder.bookingIdGenerator : new TimeOrderedBookingIdGenerator();
+        this.metrics = builder.metrics != null ? builder.metrics : BookingMetricsListener.NONE;
+        this.roomRepository = builder.metrics != null
+                ? new TimedRoomRepository(builder.roomRepository, builder.metrics)
+                : builder.roomRepository;
+        this.eventFeed = builder.eventFeed;
+    }
+
+    // Sparar rummet och anmäler det till tillgänglighetsindexet. Rum som sparas direkt i
+    // repositoryt efter första sökningen måste anmälas med AvailabilityIndex.roomAdded.
+    public void addRoom(Room room) {
+        if (room == null || room.getId() == null) {
+            throw new IllegalArgumentException("Rum och rum-id kan inte vara null");
+        }
+        ReentrantLock lock = lockFor(room.getId());
+        lock.lock();
+        try {
+            roomRepository.save(room);
+            if (availabilityIndex != null) {
+                availabilityIndex.roomAdded(room);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
+    // Som bookRoom(BookingRequest), men ogiltiga förfrågningar kastar IllegalArgumentException
+    // och krockar ger false
     public boolean bookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
-        if (startTime == null || endTime == null || roomId == null) {
-            throw new IllegalArgumentException("Bokning kräver giltiga start- och sluttider samt rum-id");
+        BookingResult result = bookRoom(new BookingRequest(roomId, startTime, endTime));
+        return switch (result.status()) {
+            case OK -> true;
+            case CONFLICT -> false;
+            default -> throw new IllegalArgumentException(result.message());
+        };
+    }
+
+    // Avvisar utan att skapa undantag, så att många ogiltiga eller krockande förfrågningar
+    // (t.ex. från botar som letar lediga tider) blir billiga. Tider och rum-id kontrolleras
+    // innan rummet hämtas eller låses.
+    public BookingResult bookRoom(BookingRequest request) {
+        long started = System.nanoTime();
+        try {
+            BookingResult result = tryBookRoom(request);
+            switch (result.status()) {
+                case INVALID, PAST, NO_SUCH_ROOM -> metrics.requestRejected(Operation.BOOK_ROOM);
+                case CONFLICT -> metrics.bookingConflicted(Operation.BOOK_ROOM);
+                default -> {
+                }
+            }
+            return result;
+        } finally {
+            metrics.operationCompleted(Operation.BOOK_ROOM, System.nanoTime() - started);
+        }
+    }
+
+    // Bokar en serie utan att skapa förekomsterna, tom om någon förekomst krockar
+    public Optional<RecurringBooking> bookRecurringRoom(String roomId,
+                                                        LocalDateTime firstStart,
+                                                        LocalDateTime firstEnd,
+                                                        RecurringBooking.Frequency frequency,
+                                                        long occurrences) {
+        long started = System.nanoTime();
+        try {
+            Optional<RecurringBooking> booked = tryBookRecurringRoom(roomId, firstStart, firstEnd, frequency, occurrences);
+            if (booked.isEmpty()) {
+                metrics.bookingConflicted(Operation.BOOK_RECURRING_ROOM);
+            }
+            return booked;
+        } catch (IllegalArgumentException e) {
+            metrics.requestRejected(Operation.BOOK_RECURRING_ROOM);
+            throw e;
+        } finally {
+            metrics.operationCompleted(Operation.BOOK_RECURRING_ROOM, System.nanoTime() - started);
+        }
+    }
+
+    private BookingResult tryBookRoom(BookingRequest request) {
+        BookingResult rejected = validate(request, timeProvider.getCurrentTime());
+        if (rejected != null) {
+            return rejected;
+        }
+
+        Booking booking;
+        ReentrantLock lock = lockForRequested(request.roomId());
+        if (lock == null) {
+            return BookingResult.rejected(BookingStatus.NO_SUCH_ROOM, "Rummet existerar inte");
         }
+        lock.lock();
+        try {
+            Optional<Room> found = roomRepository.findById(request.roomId());
+            if (found.isEmpty()) {
+                return BookingResult.rejected(BookingStatus.NO_SUCH_ROOM, "Rummet existerar inte");
+            }
+            Room room = found.get();
+
+            if (!room.isAvailable(request.startTime(), request.endTime())) {
+                return new BookingResult(BookingStatus.CONFLICT, null, null);
+            }
 
-        if (startTime.isBefore(timeProvider.getCurrentTime())) {
+            booking = new Booking(bookingIdGenerator.nextId(), request.roomId(), request.startTime(), request.endTime());
+            // Rummets lagring kan avvisa bokningen, t.ex. kompakt lagring med id som inte är UUID
+            String storageRejection = room.storageRejection(booking);
+            if (storageRejection != null) {
+                return BookingResult.rejected(BookingStatus.INVALID, storageRejection);
+            }
+            room.addBooking(booking);
+            roomRepository.addBooking(room, booking);
+            indexBooking(room, booking);
+        } finally {
+            lock.unlock();
+        }
+
+        sendBookingConfirmation(booking);
+
+        return new BookingResult(BookingStatus.OK, booking, null);
+    }
+
+    private Optional<RecurringBooking> tryBookRecurringRoom(String roomId,
+                                                            LocalDateTime firstStart,
+                                                            LocalDateTime firstEnd,
+                                                            RecurringBooking.Frequency frequency,
+                                                            long occurrences) {
+        if (firstStart == null || firstEnd == null || roomId == null || frequency == null) {
+            throw new IllegalArgumentException("Återkommande bokning kräver giltiga tider, frekvens och rum-id");
+        }
+
+        if (firstStart.isBefore(timeProvider.getCurrentTime())) {
             throw new IllegalArgumentException("Kan inte boka tid i dåtid");
         }
 
-        if (endTime.isBefore(startTime)) {
+        if (firstEnd.isBefore(firstStart)) {
             throw new IllegalArgumentException("Sluttid måste vara efter starttid");
         }
 
-        Room room = roomRepository.findById(roomId)
-                .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+        RecurringBooking recurringBooking = new RecurringBooking(bookingIdGenerator.nextId(), roomId,
+                firstStart, firstEnd, frequency, occurrences);
+        ReentrantLock lock = lockForRequested(roomId);
+        if (lock == null) {
+            throw new IllegalArgumentException("Rummet existerar inte");
+        }
+        lock.lock();
+        try {
+            Room room = roomRepository.findById(roomId)
+                    .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+
+            if (!room.isAvailable(recurringBooking)) {
+                return Optional.empty();
+            }
 
-        if (!room.isAvailable(startTime, endTime)) {
-            return false;
+            room.addRecurringBooking(recurringBooking);
+            roomRepository.addRecurringBooking(room, recurringBooking);
+            roomIdByRecurringBookingId.put(recurringBooking.getId(), roomId);
+            if (availabilityIndex != null) {
+                availabilityIndex.recurringBookingsChanged(room);
+            }
+            if (eventFeed != null) {
+                eventFeed.publish(new RecurringBookingCreated(recurringBooking, timeProvider.getCurrentTime()));
+            }
+        } finally {
+            lock.unlock();
         }
 
-        Booking booking = new Booking(UUID.randomUUID().toString(), roomId, startTime, endTime);
-        room.addBooking(booking);
-        roomRepository.save(room);
+        // Bekräftelsen gäller första förekomsten, NotificationService känner bara till enskilda bokningar
+        sendBookingConfirmation(recurringBooking.occurrence(0));
 
+        return Optional.of(recurringBooking);
+    }
+
+    public List<BatchBookingResult> bookRooms(List<BookingRequest> requests) {
+        return bookRooms(requests, BatchMode.ATOMIC);
+    }
+
+    public List<BatchBookingResult> bookRooms(List<BookingRequest> requests, BatchMode mode) {
+        long started = System.nanoTime();
         try {
-            notificationService.sendBookingConfirmation(booking);
-        } catch (NotificationException e) {
-            // Fortsätt även om notifieringen misslyckas
+            List<BatchBookingResult> results = tryBookRooms(requests, mode);
+            for (BatchBookingResult result : results) {
+                switch (result.status()) {
+                    case INVALID, PAST, NO_SUCH_ROOM -> metrics.requestRejected(Operation.BOOK_ROOMS);
+                    case CONFLICT -> metrics.bookingConflicted(Operation.BOOK_ROOMS);
+                    default -> {
+                    }
+                }
+            }
+            return results;
+        } catch (IllegalArgumentException e) {
+            metrics.requestRejected(Operation.BOOK_ROOMS);
+            throw e;
+        } finally {
+            metrics.operationCompleted(Operation.BOOK_ROOMS, System.nanoTime() - started);
         }
+    }
 
-        return true;
+    private List<BatchBookingResult> tryBookRooms(List<BookingRequest> requests, BatchMode mode) {
+        if (requests == null || mode == null) {
+            throw new IllegalArgumentException("Batchbokning kräver förfrågningar och läge");
+        }
+
+        BatchBookingResult[] results = new BatchBookingResult[requests.size()];
+        // Giltiga förfrågningar (index i requests) grupperade per rum, rummen i sorterad
+        // ordning så att låsen alltid tas i samma ordning
+        SortedMap<String, List<Integer>> requestsByRoom = new TreeMap<>();
+        LocalDateTime now = timeProvider.getCurrentTime();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            BookingResult rejected = validate(request, now);
+            if (rejected == null) {
+                requestsByRoom.computeIfAbsent(request.roomId(), id -> new ArrayList<>()).add(i);
+            } else {
+                results[i] = new BatchBookingResult(request, rejected.status(), null);
+            }
+        }
+
+        List<Booking> booked = new ArrayList<>();
+        if (mode == BatchMode.ATOMIC) {
+            bookAtomically(requests, requestsByRoom, results, booked);
+        } else {
+            requestsByRoom.forEach((roomId, indexes) -> {
+                ReentrantLock lock = lockForRequested(roomId);
+                if (lock == null) {
+                    indexes.forEach(i -> results[i] = new BatchBookingResult(requests.get(i), BookingStatus.NO_SUCH_ROOM, null));
+                    return;
+                }
+                lock.lock();
+                try {
+                    Optional<Room> room = roomRepository.findById(roomId);
+                    if (room.isEmpty()) {
+                        indexes.forEach(i -> results[i] = new BatchBookingResult(requests.get(i), BookingStatus.NO_SUCH_ROOM, null));
+                    } else {
+                        checkRoom(room.get(), requests, indexes, results);
+                        commitRoom(room.get(), requests, indexes, results, booked);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            });
+        }
+
+        if (!booked.isEmpty()) {
+            sendBookingConfirmations(booked);
+        }
+
+        return Arrays.asList(results);
     }
 
     public List<Room> getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
+        long started = System.nanoTime();
+        try {
+            return findAvailableRooms(startTime, endTime);
+        } catch (IllegalArgumentException e) {
+            metrics.requestRejected(Operation.GET_AVAILABLE_ROOMS);
+            throw e;
+        } finally {
+            metrics.operationCompleted(Operation.GET_AVAILABLE_ROOMS, System.nanoTime() - started);
+        }
+    }
+
+    // Lediga rum sorterade på id, högst limit stycken efter cursor (null för första sidan).
+    // Repositoryt läses lat och sökningen avbryts så fort sidan är full.
+    public AvailableRoomsPage getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime, int limit, String cursor) {
+        long started = System.nanoTime();
+        try {
+            return findAvailableRooms(startTime, endTime, limit, cursor);
+        } catch (IllegalArgumentException e) {
+            metrics.requestRejected(Operation.GET_AVAILABLE_ROOMS);
+            throw e;
+        } finally {
+            metrics.operationCompleted(Operation.GET_AVAILABLE_ROOMS, System.nanoTime() - started);
+        }
+    }
+
+    private List<Room> findAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
         if (startTime == null || endTime == null) {
             throw new IllegalArgumentException("Måste ange både start- och sluttid");
         }
@@ -59,42 +326,467 @@ public class BookingSystem {
             throw new IllegalArgumentException("Sluttid måste vara efter starttid");
         }
 
+        if (availabilityIndex != null) {
+            availabilityIndex.initializeIfNeeded(roomRepository::findAll);
+            return availabilityIndex.findAvailableRooms(startTime, endTime);
+        }
+
         return roomRepository.findAll().stream()
                 .filter(room -> room.isAvailable(startTime, endTime))
                 .collect(Collectors.toList());
     }
 
+    private AvailableRoomsPage findAvailableRooms(LocalDateTime startTime, LocalDateTime endTime, int limit, String cursor) {
+        if (startTime == null || endTime == null) {
+            throw new IllegalArgumentException("Måste ange både start- och sluttid");
+        }
+
+        if (endTime.isBefore(startTime)) {
+            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+        }
+
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Antalet rum per sida måste vara positivt");
+        }
+
+        List<Room> rooms;
+        try (Stream<Room> all = roomRepository.streamAll(cursor)) {
+            rooms = all.filter(room -> room.isAvailable(startTime, endTime))
+                    .limit(limit)
+                    .toList();
+        }
+        String nextCursor = rooms.size() == limit ? rooms.get(limit - 1).getId() : null;
+        return new AvailableRoomsPage(rooms, nextCursor);
+    }
+
+    // Tidigaste lediga tid av given längd i rummet, tidigast after och aldrig i dåtid
+    public Optional<AvailableSlot> findNextAvailableSlot(String roomId, Duration duration, LocalDateTime after) {
+        if (roomId == null) {
+            throw new IllegalArgumentException("Rum-id kan inte vara null");
+        }
+        return findNextAvailableSlot(List.of(roomId), duration, after);
+    }
+
+    // Tidigaste lediga tid bland rummen, vid lika start vinner rummet som kommer först i roomIds.
+    // Varje rum söks bara fram till den bästa tiden hittills, så rum som inte kan slå den gås
+    // inte igenom till slutet.
+    public Optional<AvailableSlot> findNextAvailableSlot(Collection<String> roomIds, Duration duration, LocalDateTime after) {
+        if (roomIds == null || duration == null || after == null) {
+            throw new IllegalArgumentException("Sökning kräver rum, längd och starttid");
+        }
+
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Längden kan inte vara negativ");
+        }
+
+        LocalDateTime now = timeProvider.getCurrentTime();
+        LocalDateTime earliest = after.isBefore(now) ? now : after;
+        AvailableSlot best = null;
+        for (String roomId : roomIds) {
+            Room room = roomRepository.findById(roomId)
+                    .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+            LocalDateTime notAfter = best == null ? null : best.startTime().minusNanos(1);
+            LocalDateTime start = room.findNextAvailableStart(earliest, duration, notAfter);
+            if (start != null) {
+                best = new AvailableSlot(room, start, start.plus(duration));
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
     public boolean cancelBooking(String bookingId) {
+        long started = System.nanoTime();
+        try {
+            return tryCancelBooking(bookingId);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            metrics.requestRejected(Operation.CANCEL_BOOKING);
+            throw e;
+        } finally {
+            metrics.operationCompleted(Operation.CANCEL_BOOKING, System.nanoTime() - started);
+        }
+    }
+
+    private boolean tryCancelBooking(String bookingId) {
         if (bookingId == null) {
             throw new IllegalArgumentException("Boknings-id kan inte vara null");
         }
 
-        Optional<Room> roomWithBooking = roomRepository.findAll().stream()
-                .filter(room -> room.hasBooking(bookingId))
-                .findFirst();
+        Optional<Room> roomWithBooking = findRoomByBookingId(bookingId);
 
         if (roomWithBooking.isEmpty()) {
             return false;
         }
 
         Room room = roomWithBooking.get();
-        Booking booking = room.getBooking(bookingId);
+        Booking booking;
+        ReentrantLock lock = lockFor(room.getId());
+        lock.lock();
+        try {
+            // En samtidig avbokning kan ha hunnit före
+            if (!room.hasBooking(bookingId)) {
+                return false;
+            }
+            booking = room.getBooking(bookingId);
+
+            if (booking.getStartTime().isBefore(timeProvider.getCurrentTime())) {
+                throw new IllegalStateException("Kan inte avboka påbörjad eller avslutad bokning");
+            }
 
-        if (booking.getStartTime().isBefore(timeProvider.getCurrentTime())) {
-            throw new IllegalStateException("Kan inte avboka påbörjad eller avslutad bokning");
+            room.removeBooking(bookingId);
+            roomRepository.removeBooking(room, bookingId);
+            roomIdByBookingId.remove(bookingId);
+            if (availabilityIndex != null) {
+                availabilityIndex.bookingRemoved(room, booking);
+            }
+            if (eventFeed != null) {
+                eventFeed.publish(new BookingCancelled(booking, timeProvider.getCurrentTime()));
+            }
+        } finally {
+            lock.unlock();
         }
 
-        room.removeBooking(bookingId);
-        roomRepository.save(room);
+        sendCancellationConfirmation(booking);
 
+        return true;
+    }
+
+    // Avbokar seriens förekomster som inte har börjat. Förekomster som redan börjat ligger kvar
+    // som en kortare serie, precis som cancelBooking inte tar bort påbörjade bokningar.
+    public boolean cancelRecurringBooking(String recurringBookingId) {
+        long started = System.nanoTime();
+        try {
+            return tryCancelRecurringBooking(recurringBookingId);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            metrics.requestRejected(Operation.CANCEL_RECURRING_BOOKING);
+            throw e;
+        } finally {
+            metrics.operationCompleted(Operation.CANCEL_RECURRING_BOOKING, System.nanoTime() - started);
+        }
+    }
+
+    private boolean tryCancelRecurringBooking(String recurringBookingId) {
+        if (recurringBookingId == null) {
+            throw new IllegalArgumentException("Boknings-id kan inte vara null");
+        }
+
+        Optional<Room> roomWithBooking = findRoomByRecurringBookingId(recurringBookingId);
+
+        if (roomWithBooking.isEmpty()) {
+            return false;
+        }
+
+        Room room = roomWithBooking.get();
+        Booking firstCancelled;
+        ReentrantLock lock = lockFor(room.getId());
+        lock.lock();
+        try {
+            if (!room.hasRecurringBooking(recurringBookingId)) {
+                return false;
+            }
+            RecurringBooking recurringBooking = room.getRecurringBooking(recurringBookingId);
+            LocalDateTime now = timeProvider.getCurrentTime();
+            long kept = recurringBooking.occurrencesStartedBefore(now);
+            if (kept == recurringBooking.getOccurrences()) {
+                throw new IllegalStateException("Kan inte avboka påbörjad eller avslutad bokning");
+            }
+            firstCancelled = recurringBooking.occurrence(kept);
+
+            room.removeRecurringBooking(recurringBookingId);
+            roomRepository.removeRecurringBooking(room, recurringBookingId);
+            RecurringBooking remaining = null;
+            if (kept > 0) {
+                remaining = recurringBooking.truncatedTo(kept);
+                room.addRecurringBooking(remaining);
+                roomRepository.addRecurringBooking(room, remaining);
+            } else {
+                roomIdByRecurringBookingId.remove(recurringBookingId);
+            }
+            if (availabilityIndex != null) {
+                availabilityIndex.recurringBookingsChanged(room);
+            }
+            if (eventFeed != null) {
+                eventFeed.publish(new RecurringBookingCancelled(recurringBooking, now));
+                if (remaining != null) {
+                    eventFeed.publish(new RecurringBookingCreated(remaining, now));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Bokningsbekräftelsen gäller första förekomsten, avbokningen första som inte blir av
+        sendCancellationConfirmation(firstCancelled);
+
+        return true;
+    }
+
+    // Flyttar bokningar som slutat före nuvarande tid till arkivet, ett rum i taget under
+    // rummets lås. Arkivet skrivs före repositoryt, så ett avbrott kan ge dubbletter men
+    // aldrig förlorade bokningar.
+    public int archiveFinishedBookings(BookingArchive archive) {
+        if (archive == null) {
+            throw new IllegalArgumentException("Arkiv kan inte vara null");
+        }
+
+        LocalDateTime now = timeProvider.getCurrentTime();
+        int archived = 0;
+        for (Room room : roomRepository.findAll()) {
+            ReentrantLock lock = lockFor(room.getId());
+            lock.lock();
+            try {
+                List<Booking> finished = room.removeBookingsEndedBefore(now);
+                if (finished.isEmpty()) {
+                    continue;
+                }
+                try {
+                    archive.append(finished);
+                } catch (RuntimeException e) {
+                    finished.forEach(room::addBooking);
+                    throw e;
+                }
+                roomRepository.removeBookings(room, finished.stream().map(Booking::getId).toList());
+                for (Booking booking : finished) {
+                    roomIdByBookingId.remove(booking.getId());
+                    if (availabilityIndex != null) {
+                        availabilityIndex.bookingRemoved(room, booking);
+                    }
+                }
+                archived += finished.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return archived;
+    }
+
+    private void sendBookingConfirmation(Booking booking) {
+        try {
+            notificationService.sendBookingConfirmation(booking);
+        } catch (NotificationException e) {
+            // Fortsätt även om notifieringen misslyckas
+            metrics.notificationFailed(booking, e);
+        }
+    }
+
+    // Hela batchen i ett anrop, så en tjänst med massutskick kan skicka allt på en gång
+    private void sendBookingConfirmations(List<Booking> bookings) {
+        try {
+            notificationService.sendBookingConfirmations(bookings);
+        } catch (NotificationException e) {
+            // Fortsätt även om notifieringen misslyckas
+            metrics.notificationsFailed(bookings, e);
+        }
+    }
+
+    private void sendCancellationConfirmation(Booking booking) {
         try {
             notificationService.sendCancellationConfirmation(booking);
         } catch (NotificationException e) {
             // Fortsätt även om notifieringen misslyckas
+            metrics.notificationFailed(booking, e);
         }
+    }
 
-        return true;
+    // null om förfrågan är giltig. Kontrollerna görs i samma ordning som de alltid gjorts, så
+    // att bookRoom(String, ...) kastar samma meddelande som förut.
+    private BookingResult validate(BookingRequest request, LocalDateTime now) {
+        if (request == null || request.roomId() == null || request.startTime() == null || request.endTime() == null) {
+            return BookingResult.rejected(BookingStatus.INVALID, "Bokning kräver giltiga start- och sluttider samt rum-id");
+        }
+        if (request.startTime().isBefore(now)) {
+            return BookingResult.rejected(BookingStatus.PAST, "Kan inte boka tid i dåtid");
+        }
+        if (request.endTime().isBefore(request.startTime())) {
+            return BookingResult.rejected(BookingStatus.INVALID, "Sluttid måste vara efter starttid");
+        }
+        return null;
     }
-}
 
-// Stödklasser och interface som behövs:
+    private void bookAtomically(List<BookingRequest> requests,
+                                SortedMap<String, List<Integer>> requestsByRoom,
+                                BatchBookingResult[] results,
+                                List<Booking> booked) {
+        // Låsen tas i rummens sorterade ordning, så två batcher kan inte vänta på varandra
+        List<ReentrantLock> locks = new ArrayList<>();
+        try {
+            Map<String, Room> rooms = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> entry : requestsByRoom.entrySet()) {
+                ReentrantLock lock = lockForRequested(entry.getKey());
+                Optional<Room> room = Optional.empty();
+                if (lock != null) {
+                    lock.lock();
+                    locks.add(lock);
+                    room = roomRepository.findById(entry.getKey());
+                }
+                if (room.isEmpty()) {
+                    entry.getValue().forEach(i -> results[i] = new BatchBookingResult(requests.get(i), BookingStatus.NO_SUCH_ROOM, null));
+                } else {
+                    rooms.put(entry.getKey(), room.get());
+                    checkRoom(room.get(), requests, entry.getValue(), results);
+                }
+            }
+
+            boolean allOk = Arrays.stream(results).allMatch(result -> result == null);
+            for (Map.Entry<String, List<Integer>> entry : requestsByRoom.entrySet()) {
+                if (allOk) {
+                    commitRoom(rooms.get(entry.getKey()), requests, entry.getValue(), results, booked);
+                } else {
+                    for (int i : entry.getValue()) {
+                        if (results[i] == null) {
+                            results[i] = new BatchBookingResult(requests.get(i), BookingStatus.ABORTED, null);
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    // Sorterar rummets förfrågningar på starttid och går igenom dem en gång. Konflikter mot
+    // befintliga bokningar och mot tidigare godkända förfrågningar i samma batch markeras.
+    private void checkRoom(Room room, List<BookingRequest> requests, List<Integer> indexes, BatchBookingResult[] results) {
+        indexes.sort(Comparator.comparing(i -> requests.get(i).startTime()));
+        LocalDateTime acceptedUntil = null;
+        for (int i : indexes) {
+            BookingRequest request = requests.get(i);
+            boolean overlapsBatch = acceptedUntil != null && !request.startTime().isAfter(acceptedUntil);
+            if (overlapsBatch || !room.isAvailable(request.startTime(), request.endTime())) {
+                results[i] = new BatchBookingResult(request, BookingStatus.CONFLICT, null);
+            } else {
+                acceptedUntil = request.endTime();
+            }
+        }
+    }
+
+    private void commitRoom(Room room,
+                            List<BookingRequest> requests,
+                            List<Integer> indexes,
+                            BatchBookingResult[] results,
+                            List<Booking> booked) {
+        List<Booking> bookings = new ArrayList<>();
+        for (int i : indexes) {
+            if (results[i] != null) {
+                continue;
+            }
+            BookingRequest request = requests.get(i);
+            Booking booking = new Booking(bookingIdGenerator.nextId(), request.roomId(), request.startTime(), request.endTime());
+            if (room.storageRejection(booking) != null) {
+                // Rummets lagring avvisar bokningen, se tryBookRoom
+                results[i] = new BatchBookingResult(request, BookingStatus.INVALID, null);
+                continue;
+            }
+            room.addBooking(booking);
+            bookings.add(booking);
+            results[i] = new BatchBookingResult(request, BookingStatus.OK, booking);
+        }
+        if (bookings.isEmpty()) {
+            return;
+        }
+        roomRepository.addBookings(room, bookings);
+        for (Booking booking : bookings) {
+            indexBooking(room, booking);
+        }
+        booked.addAll(bookings);
+    }
+
+    // Anropas under rummets lås, så händelserna för ett rum kommer i samma ordning som ändringarna
+    private void indexBooking(Room room, Booking booking) {
+        roomIdByBookingId.put(booking.getId(), booking.getRoomId());
+        if (availabilityIndex != null) {
+            availabilityIndex.bookingAdded(room, booking);
+        }
+        if (eventFeed != null) {
+            eventFeed.publish(new BookingCreated(booking, timeProvider.getCurrentTime()));
+        }
+    }
+
+    // För rum som finns eller just ska sparas
+    private ReentrantLock lockFor(String roomId) {
+        return roomLocks.computeIfAbsent(roomId, id -> new ReentrantLock());
+    }
+
+    // För rum-id från en förfrågan, null om rummet inte finns. Rummet läses bara första gången.
+    private ReentrantLock lockForRequested(String roomId) {
+        ReentrantLock lock = roomLocks.get(roomId);
+        if (lock != null || roomRepository.findById(roomId).isEmpty()) {
+            return lock;
+        }
+        return lockFor(roomId);
+    }
+
+    private Optional<Room> findRoomByBookingId(String bookingId) {
+        String roomId = roomIdByBookingId.get(bookingId);
+        if (roomId != null) {
+            Optional<Room> room = roomRepository.findById(roomId)
+                    .filter(candidate -> candidate.hasBooking(bookingId));
+            if (room.isPresent()) {
+                return room;
+            }
+            // Indexet är inaktuellt, t.ex. om bokningen tagits bort direkt i repositoryt
+            roomIdByBookingId.remove(bookingId);
+        }
+        return roomRepository.findByBookingId(bookingId);
+    }
+
+    private Optional<Room> findRoomByRecurringBookingId(String recurringBookingId) {
+        String roomId = roomIdByRecurringBookingId.get(recurringBookingId);
+        if (roomId != null) {
+            Optional<Room> room = roomRepository.findById(roomId)
+                    .filter(candidate -> candidate.hasRecurringBooking(recurringBookingId));
+            if (room.isPresent()) {
+                return room;
+            }
+            roomIdByRecurringBookingId.remove(recurringBookingId);
+        }
+        return roomRepository.findAll().stream()
+                .filter(room -> room.hasRecurringBooking(recurringBookingId))
+                .findFirst();
+    }
+
+    public static final class Builder {
+        private final TimeProvider timeProvider;
+        private final RoomRepository roomRepository;
+        private final NotificationService notificationService;
+        private AvailabilityIndex availabilityIndex;
+        private BookingIdGenerator bookingIdGenerator;
+        private BookingMetricsListener metrics;
+        private BookingEventFeed eventFeed;
+
+        private Builder(TimeProvider timeProvider, RoomRepository roomRepository, NotificationService notificationService) {
+            this.timeProvider = timeProvider;
+            this.roomRepository = roomRepository;
+            this.notificationService = notificationService;
+        }
+
+        // Utan index söks alla rum igenom i getAvailableRooms
+        public Builder availabilityIndex(AvailabilityIndex availabilityIndex) {
+            this.availabilityIndex = availabilityIndex;
+            return this;
+        }
+
+        // Standard är tidsordnade UUID utan SecureRandom
+        public Builder bookingIdGenerator(BookingIdGenerator bookingIdGenerator) {
+            this.bookingIdGenerator = bookingIdGenerator;
+            return this;
+        }
+
+        // Med mätning tidtas även varje repositoryanrop
+        public Builder metrics(BookingMetricsListener metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        // Utan flöde publiceras inga händelser
+        public Builder eventFeed(BookingEventFeed eventFeed) {
+            this.eventFeed = eventFeed;
+            return this;
+        }
+
+        public BookingSystem build() {
+            return new BookingSystem(this);
+        }
+    }
+}
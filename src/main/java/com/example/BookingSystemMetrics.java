@@ -0,0 +1,143 @@
+package com.example;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Standardimplementation av BookingMetricsListener: ett latenshistogram per operation och
+// räknare för avvisade, krockande och ej notifierade bokningar. Kan registreras i JMX.
+public class BookingSystemMetrics implements BookingMetricsListener, BookingSystemMetricsMXBean {
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder notificationFailures = new LongAdder();
+
+    public BookingSystemMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void requestRejected(Operation operation) {
+        rejected.increment();
+    }
+
+    @Override
+    public void bookingConflicted(Operation operation) {
+        conflicts.increment();
+    }
+
+    @Override
+    public void notificationFailed(Booking booking, NotificationException exception) {
+        notificationFailures.increment();
+    }
+
+    @Override
+    public void notificationsFailed(List<Booking> bookings, NotificationException exception) {
+        notificationFailures.add(bookings.size());
+    }
+
+    public LatencySnapshot getLatency(Operation operation) {
+        LatencyHistogram histogram = latencies[operation.ordinal()];
+        return new LatencySnapshot(histogram.getCount(),
+                histogram.getMean() / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MICRO,
+                histogram.getMax() / NANOS_PER_MICRO);
+    }
+
+    @Override
+    public LatencySnapshot getBookRoomLatency() {
+        return getLatency(Operation.BOOK_ROOM);
+    }
+
+    @Override
+    public LatencySnapshot getBookRoomsLatency() {
+        return getLatency(Operation.BOOK_ROOMS);
+    }
+
+    @Override
+    public LatencySnapshot getBookRecurringRoomLatency() {
+        return getLatency(Operation.BOOK_RECURRING_ROOM);
+    }
+
+    @Override
+    public LatencySnapshot getCancelBookingLatency() {
+        return getLatency(Operation.CANCEL_BOOKING);
+    }
+
+    @Override
+    public LatencySnapshot getCancelRecurringBookingLatency() {
+        return getLatency(Operation.CANCEL_RECURRING_BOOKING);
+    }
+
+    @Override
+    public LatencySnapshot getAvailableRoomsLatency() {
+        return getLatency(Operation.GET_AVAILABLE_ROOMS);
+    }
+
+    @Override
+    public LatencySnapshot getRepositoryReadLatency() {
+        return getLatency(Operation.REPOSITORY_READ);
+    }
+
+    @Override
+    public LatencySnapshot getRepositoryWriteLatency() {
+        return getLatency(Operation.REPOSITORY_WRITE);
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    @Override
+    public long getNotificationFailedCount() {
+        return notificationFailures.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        rejected.reset();
+        conflicts.reset();
+        notificationFailures.reset();
+    }
+
+    // Registrerar mätvärdena som com.example:type=BookingSystemMetrics,name=<name>
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.example:type=BookingSystemMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Kunde inte registrera mätvärden i JMX", e);
+        }
+    }
+
+    public void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Kunde inte avregistrera mätvärden från JMX", e);
+        }
+    }
+}
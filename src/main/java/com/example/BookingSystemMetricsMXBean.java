@@ -0,0 +1,27 @@
+package com.example;
+
+public interface BookingSystemMetricsMXBean {
+    LatencySnapshot getBookRoomLatency();
+
+    LatencySnapshot getBookRoomsLatency();
+
+    LatencySnapshot getBookRecurringRoomLatency();
+
+    LatencySnapshot getCancelBookingLatency();
+
+    LatencySnapshot getCancelRecurringBookingLatency();
+
+    LatencySnapshot getAvailableRoomsLatency();
+
+    LatencySnapshot getRepositoryReadLatency();
+
+    LatencySnapshot getRepositoryWriteLatency();
+
+    long getRejectedCount();
+
+    long getConflictCount();
+
+    long getNotificationFailedCount();
+
+    void reset();
+}
@@ -0,0 +1,8 @@
+package com.example;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Paketpris när en av varje vara finns i varukorgen, t.ex. pasta och sås för 30 kr
+public record BundleRule(List<Integer> barcodes, BigDecimal price) implements PricingRule {
+}
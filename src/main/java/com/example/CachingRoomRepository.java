@@ -0,0 +1,262 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+// Läsande cache framför ett långsamt repository. Rummen hålls i en LRU-map begränsad av
+// en total vikt, skrivningar går igenom till det underliggande repositoryt och uppdaterar
+// cachen. findAll hålls som en ögonblicksbild som följer skrivningar genom cachen, men bara
+// om alla rum ryms i LRU-mapen. Ögonblicksbilden släpps så fort ett av dess rum trängs undan,
+// så den håller aldrig rum vid liv som vikten inte räknar med.
+// Förutsätter att alla skrivningar går genom cachen, annars måste invalidateAll anropas.
+public class CachingRoomRepository implements RoomRepository {
+    private static final int DEFAULT_MAX_ROOMS = 10_000;
+
+    private final RoomRepository delegate;
+    private final long maxWeight;
+    private final ToIntFunction<Room> weigher;
+    // Åtkomstordnad, äldst använda först
+    private final LinkedHashMap<String, Room> rooms = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> weights = new HashMap<>();
+    private long totalWeight;
+    // Alla rum i den ordning findAll gav dem, null när den måste hämtas igen.
+    // Varje rum i den finns också i rooms.
+    private LinkedHashMap<String, Room> allRooms;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong findAllHits = new AtomicLong();
+    private final AtomicLong findAllMisses = new AtomicLong();
+
+    public CachingRoomRepository(RoomRepository delegate) {
+        this(delegate, DEFAULT_MAX_ROOMS);
+    }
+
+    public CachingRoomRepository(RoomRepository delegate, int maxRooms) {
+        this(delegate, maxRooms, room -> 1);
+    }
+
+    // Vikten räknas när rummet läggs i cachen, t.ex. room -> 1 + room.getBookings().size()
+    public CachingRoomRepository(RoomRepository delegate, long maxWeight, ToIntFunction<Room> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Cachens maxvikt måste vara positiv");
+        }
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        synchronized (this) {
+            Room cached = rooms.get(id);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached);
+            }
+        }
+        misses.incrementAndGet();
+        // Hämtningen görs utan lås så att långsamma anrop inte blockerar träffar
+        Optional<Room> loaded = delegate.findById(id);
+        return loaded.map(this::cacheLoaded);
+    }
+
+    @Override
+    public List<Room> findAll() {
+        synchronized (this) {
+            if (allRooms != null) {
+                findAllHits.incrementAndGet();
+                return List.copyOf(allRooms.values());
+            }
+        }
+        findAllMisses.incrementAndGet();
+        List<Room> loaded = delegate.findAll();
+        synchronized (this) {
+            LinkedHashMap<String, Room> snapshot = new LinkedHashMap<>();
+            long weight = 0;
+            for (Room room : loaded) {
+                // Redan cachade rum är de som bokats om, de får inte ersättas av äldre kopior
+                // och vikten räknas på den instans som faktiskt hålls
+                Room cached = rooms.get(room.getId());
+                Room kept = cached != null ? cached : room;
+                snapshot.put(room.getId(), kept);
+                weight += weigher.applyAsInt(kept);
+            }
+            if (weight <= maxWeight) {
+                // Att ett rum trängs undan här släpper ögonblicksbilden igen
+                allRooms = snapshot;
+                for (Room room : snapshot.values()) {
+                    if (!rooms.containsKey(room.getId())) {
+                        put(room);
+                    }
+                }
+            }
+            return List.copyOf(snapshot.values());
+        }
+    }
+
+    // Från ögonblicksbilden om den finns, annars lat från det underliggande repositoryt.
+    // Genomsökta rum läggs inte i LRU-cachen så att en lång sökning inte tränger undan allt.
+    @Override
+    public Stream<Room> streamAll(String afterRoomId) {
+        synchronized (this) {
+            if (allRooms != null) {
+                findAllHits.incrementAndGet();
+                return allRooms.values().stream()
+                        .filter(room -> afterRoomId == null || room.getId().compareTo(afterRoomId) > 0)
+                        .sorted(Comparator.comparing(Room::getId))
+                        .toList()
+                        .stream();
+            }
+        }
+        return delegate.streamAll(afterRoomId).map(this::cachedOrLoaded);
+    }
+
+    @Override
+    public Optional<Room> findByBookingId(String bookingId) {
+        return delegate.findByBookingId(bookingId).map(this::cacheLoaded);
+    }
+
+    @Override
+    public void save(Room room) {
+        delegate.save(room);
+        cacheWritten(room);
+    }
+
+    @Override
+    public void addBooking(Room room, Booking booking) {
+        delegate.addBooking(room, booking);
+        cacheWritten(room);
+    }
+
+    @Override
+    public void addBookings(Room room, List<Booking> bookings) {
+        delegate.addBookings(room, bookings);
+        cacheWritten(room);
+    }
+
+    @Override
+    public void removeBooking(Room room, String bookingId) {
+        delegate.removeBooking(room, bookingId);
+        cacheWritten(room);
+    }
+
+    @Override
+    public void removeBookings(Room room, List<String> bookingIds) {
+        delegate.removeBookings(room, bookingIds);
+        cacheWritten(room);
+    }
+
+    @Override
+    public void addRecurringBooking(Room room, RecurringBooking recurringBooking) {
+        delegate.addRecurringBooking(room, recurringBooking);
+        cacheWritten(room);
+    }
+
+    @Override
+    public void removeRecurringBooking(Room room, String recurringBookingId) {
+        delegate.removeRecurringBooking(room, recurringBookingId);
+        cacheWritten(room);
+    }
+
+    // För ändringar som gjorts direkt i det underliggande repositoryt
+    public synchronized void invalidateAll() {
+        rooms.clear();
+        weights.clear();
+        totalWeight = 0;
+        allRooms = null;
+    }
+
+    public synchronized int getSize() {
+        return rooms.size();
+    }
+
+    public synchronized long getWeight() {
+        return totalWeight;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getFindAllHitCount() {
+        return findAllHits.get();
+    }
+
+    public long getFindAllMissCount() {
+        return findAllMisses.get();
+    }
+
+    // Ett samtidigt anrop kan ha hunnit cacha rummet, då vinner den cachade instansen
+    // så att alla anropare ser och låser samma objekt
+    private synchronized Room cacheLoaded(Room loaded) {
+        Room cached = rooms.get(loaded.getId());
+        if (cached != null) {
+            return cached;
+        }
+        put(loaded);
+        return loaded;
+    }
+
+    private synchronized Room cachedOrLoaded(Room loaded) {
+        Room cached = rooms.get(loaded.getId());
+        return cached != null ? cached : loaded;
+    }
+
+    private synchronized void cacheWritten(Room room) {
+        put(room);
+        // put kan ha släppt ögonblicksbilden
+        if (allRooms != null) {
+            allRooms.put(room.getId(), room);
+        }
+    }
+
+    private void put(Room room) {
+        int weight = weigher.applyAsInt(room);
+        Integer previous = weights.put(room.getId(), weight);
+        if (previous != null) {
+            totalWeight -= previous;
+        }
+        totalWeight += weight;
+        rooms.put(room.getId(), room);
+        evictIfNeeded(room.getId());
+    }
+
+    // Tar bort de äldst använda rummen, men aldrig det som just lades till
+    private void evictIfNeeded(String keep) {
+        List<String> evicted = new ArrayList<>();
+        for (String id : rooms.keySet()) {
+            if (totalWeight <= maxWeight) {
+                break;
+            }
+            if (!id.equals(keep)) {
+                totalWeight -= weights.remove(id);
+                evicted.add(id);
+            }
+        }
+        for (String id : evicted) {
+            rooms.remove(id);
+            if (allRooms != null && allRooms.containsKey(id)) {
+                allRooms = null;
+            }
+        }
+        evictions.addAndGet(evicted.size());
+    }
+}
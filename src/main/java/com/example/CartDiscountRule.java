@@ -0,0 +1,7 @@
+package com.example;
+
+import java.math.BigDecimal;
+
+// Procentrabatt på hela varukorgen när summan efter övriga kampanjer når threshold
+public record CartDiscountRule(BigDecimal threshold, int percent) implements PricingRule {
+}
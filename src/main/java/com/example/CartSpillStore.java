@@ -0,0 +1,124 @@
+package com.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Kalla varukorgar på disk, en fil per session. Raderna sparas i varukorgens ordning som
+// streckkod, namn, pris som oskalat värde och skala, rabatt och antal. Filerna ligger i en
+// egen underkatalog, så inget annat i den angivna katalogen rörs. Ingenting raderas vid
+// start, korgar från en tidigare körning läses in igen som vilka kalla korgar som helst.
+final class CartSpillStore {
+    private static final String SUBDIRECTORY = "carts";
+    private static final String SUFFIX = ".cart";
+
+    private final Path directory;
+
+    CartSpillStore(Path parent) {
+        this.directory = parent.resolve(SUBDIRECTORY);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skapa katalogen för varukorgar " + directory, e);
+        }
+    }
+
+    // Sessioner som har en korg på disk. Filer vars namn inte är ett kodat sessions-id hoppas över.
+    List<String> sessionIds() {
+        List<String> sessionIds = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    byte[] decoded = Base64.getUrlDecoder().decode(name.substring(0, name.length() - SUFFIX.length()));
+                    sessionIds.add(new String(decoded, StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    // Inte en fil som den här klassen skrivit
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte lista varukorgar i " + directory, e);
+        }
+        return sessionIds;
+    }
+
+    void write(String sessionId, List<Item> items) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            out.writeInt(items.size());
+            for (Item item : items) {
+                out.writeInt(item.barcode());
+                out.writeUTF(item.name());
+                byte[] unscaled = item.price().unscaledValue().toByteArray();
+                out.writeByte(unscaled.length);
+                out.write(unscaled);
+                out.writeInt(item.price().scale());
+                out.writeInt(item.discount());
+                out.writeInt(item.quantity());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte serialisera varukorgen", e);
+        }
+        try {
+            Files.write(fileFor(sessionId), raw.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skriva varukorgen för " + sessionId, e);
+        }
+    }
+
+    // Filen ligger kvar tills den tas bort med delete. null om filen inte finns, t.ex. för att
+    // korgen just gått ut.
+    List<Item> read(String sessionId) {
+        Path file = fileFor(sessionId);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte läsa varukorgen för " + sessionId, e);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int count = in.readInt();
+            List<Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int barcode = in.readInt();
+                String name = in.readUTF();
+                byte[] unscaled = new byte[in.readUnsignedByte()];
+                in.readFully(unscaled);
+                BigDecimal price = new BigDecimal(new BigInteger(unscaled), in.readInt());
+                items.add(new Item(barcode, name, price, in.readInt(), in.readInt()));
+            }
+            return items;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte läsa varukorgen för " + sessionId, e);
+        }
+    }
+
+    void delete(String sessionId) {
+        try {
+            Files.deleteIfExists(fileFor(sessionId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte ta bort varukorgen för " + sessionId, e);
+        }
+    }
+
+    // Sessions-id kan innehålla vad som helst, filnamnet blir dess URL-säkra base64
+    private Path fileFor(String sessionId) {
+        String name = Base64.getUrlEncoder().withoutPadding().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(name + SUFFIX);
+    }
+}
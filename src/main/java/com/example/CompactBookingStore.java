@@ -0,0 +1,375 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Bokningar som parallella primitiva fält sorterade på starttid: tider som nanosekunder sedan
+// epoken (UTC) och id som UUID i två long. Booking-objekt skapas bara när de efterfrågas.
+// Id-uppslag går via en hashtabell (öppen adressering, linjär sondering) från ett fingeravtryck
+// av id:t till bokningens starttid, som sedan binärsöks. Tabellen pekar inte på positioner,
+// som flyttas vid varje insättning. Överlappningar söks i ett segmentträd med senaste sluttid
+// per intervall av positioner. Runt 32 byte per bokning plus 24-48 byte i tabellen och 16-32
+// byte i segmentträdet.
+final class CompactBookingStore implements BookingStore {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final String UUID_REQUIRED = "Kompakt lagring kräver UUID som boknings-id";
+    private static final String OUT_OF_RANGE = "Tiden ligger utanför vad kompakt lagring kan representera";
+
+    private final String roomId;
+    private long[] starts;
+    private long[] ends;
+    private long[] idHigh;
+    private long[] idLow;
+    private int size;
+    // Segmentträd i ett fält: löven på plats leaves + i håller ends[i], övriga noder den senaste
+    // sluttiden under sig. Lediga löv är Long.MIN_VALUE.
+    private long[] maxEnds;
+    private int leaves;
+
+    // Fingeravtryck av id, EMPTY eller DELETED, och starttiden för platsens bokning
+    private int[] fingerprints;
+    private long[] tableStarts;
+    private int deletedSlots;
+
+    CompactBookingStore(String roomId) {
+        this(roomId, 8);
+    }
+
+    CompactBookingStore(String roomId, int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        this.roomId = roomId;
+        starts = new long[capacity];
+        ends = new long[capacity];
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        fingerprints = new int[tableSizeFor(capacity)];
+        tableStarts = new long[fingerprints.length];
+        rebuildMaxEnds();
+    }
+
+    @Override
+    public String rejectionReason(Booking booking) {
+        if (exactUuid(booking.getId()) == null) {
+            return UUID_REQUIRED;
+        }
+        if (!representable(booking.getStartTime()) || !representable(booking.getEndTime())) {
+            return OUT_OF_RANGE;
+        }
+        return null;
+    }
+
+    @Override
+    public void add(Booking booking) {
+        UUID id = parseId(booking.getId());
+        long start = toNanos(booking.getStartTime());
+        long end = toNanos(booking.getEndTime());
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        int existing = findSlot(high, low);
+        if (existing >= 0) {
+            removeAt(indexOf(tableStarts[existing], high, low));
+            fingerprints[existing] = DELETED;
+            deletedSlots++;
+        }
+        if (size == starts.length) {
+            grow();
+        }
+        // Efter sista bokningen med samma eller tidigare start, så att tillägg i tidsordning bara skriver sist
+        int position = upperBound(start);
+        int moved = size - position;
+        System.arraycopy(starts, position, starts, position + 1, moved);
+        System.arraycopy(ends, position, ends, position + 1, moved);
+        System.arraycopy(idHigh, position, idHigh, position + 1, moved);
+        System.arraycopy(idLow, position, idLow, position + 1, moved);
+        starts[position] = start;
+        ends[position] = end;
+        idHigh[position] = high;
+        idLow[position] = low;
+        size++;
+        updateMaxEnds(position, size);
+        if ((size + deletedSlots) * 2 > fingerprints.length) {
+            rebuildTable();
+        } else {
+            insertIntoTable(fingerprint(high, low), start);
+        }
+    }
+
+    @Override
+    public void remove(String bookingId) {
+        UUID id = toUuid(bookingId);
+        int slot = id == null ? -1 : findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        if (slot >= 0) {
+            removeAt(indexOf(tableStarts[slot], id.getMostSignificantBits(), id.getLeastSignificantBits()));
+            fingerprints[slot] = DELETED;
+            deletedSlots++;
+        }
+    }
+
+    // Flyttar kvarvarande bokningar bakåt i ett svep, ordningen på starttid behålls
+    @Override
+    public List<Booking> removeEndedBefore(LocalDateTime time) {
+        long limit = clampedNanos(time);
+        int candidates = upperBound(limit);
+        List<Booking> ended = new ArrayList<>();
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (i < candidates && ends[i] < limit) {
+                ended.add(bookingAt(i));
+                continue;
+            }
+            starts[target] = starts[i];
+            ends[target] = ends[i];
+            idHigh[target] = idHigh[i];
+            idLow[target] = idLow[i];
+            target++;
+        }
+        size = target;
+        if (!ended.isEmpty()) {
+            rebuildMaxEnds();
+            rebuildTable();
+        }
+        return ended;
+    }
+
+    @Override
+    public boolean contains(String bookingId) {
+        return indexOf(bookingId) >= 0;
+    }
+
+    @Override
+    public Booking get(String bookingId) {
+        int index = indexOf(bookingId);
+        return index < 0 ? null : bookingAt(index);
+    }
+
+    @Override
+    public Collection<Booking> all() {
+        List<Booking> bookings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bookings.add(bookingAt(i));
+        }
+        return bookings;
+    }
+
+    // Den första bokningen som slutar tidigast vid start måste också ha börjat senast end
+    @Override
+    public boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime) {
+        return firstEndingFrom(0, clampedNanos(startTime)) < upperBound(clampedNanos(endTime));
+    }
+
+    @Override
+    public Stream<Booking> candidates(LocalDateTime startTime, LocalDateTime endTime) {
+        long start = clampedNanos(startTime);
+        int end = upperBound(clampedNanos(endTime));
+        return IntStream.iterate(firstEndingFrom(0, start), i -> i < end, i -> firstEndingFrom(i + 1, start))
+                .mapToObj(this::bookingAt);
+    }
+
+    @Override
+    public Stream<Booking> inStartOrderFrom(LocalDateTime time) {
+        long from = clampedNanos(time);
+        return IntStream.iterate(firstEndingFrom(0, from), i -> i < size, i -> firstEndingFrom(i + 1, from))
+                .mapToObj(this::bookingAt);
+    }
+
+    // Första index från och med from vars bokning slutar tidigast time, annars size
+    private int firstEndingFrom(int from, long time) {
+        return from >= size ? size : firstEndingFrom(1, 0, leaves, from, time);
+    }
+
+    private int firstEndingFrom(int node, int low, int high, int from, long time) {
+        if (high <= from || maxEnds[node] < time) {
+            return size;
+        }
+        if (high - low == 1) {
+            return Math.min(low, size);
+        }
+        int mid = (low + high) >>> 1;
+        int found = firstEndingFrom(2 * node, low, mid, from, time);
+        return found < size ? found : firstEndingFrom(2 * node + 1, mid, high, from, time);
+    }
+
+    // Uppdaterar löven för positionerna [from, to) och noderna ovanför dem
+    private void updateMaxEnds(int from, int to) {
+        for (int i = from; i < to; i++) {
+            maxEnds[leaves + i] = i < size ? ends[i] : Long.MIN_VALUE;
+        }
+        for (int low = (leaves + from) >>> 1, high = (leaves + to - 1) >>> 1; low >= 1; low >>>= 1, high >>>= 1) {
+            for (int node = low; node <= high; node++) {
+                maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+            }
+        }
+    }
+
+    private void rebuildMaxEnds() {
+        leaves = Integer.highestOneBit(Math.max(1, starts.length - 1) * 2);
+        maxEnds = new long[2 * leaves];
+        Arrays.fill(maxEnds, Long.MIN_VALUE);
+        updateMaxEnds(0, size);
+    }
+
+    private Booking bookingAt(int index) {
+        return new Booking(new UUID(idHigh[index], idLow[index]).toString(), roomId,
+                fromNanos(starts[index]), fromNanos(ends[index]));
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(starts, index + 1, starts, index, moved);
+        System.arraycopy(ends, index + 1, ends, index, moved);
+        System.arraycopy(idHigh, index + 1, idHigh, index, moved);
+        System.arraycopy(idLow, index + 1, idLow, index, moved);
+        size--;
+        // Den sista platsen blir ledig
+        updateMaxEnds(index, size + 1);
+    }
+
+    private int indexOf(String bookingId) {
+        UUID id = toUuid(bookingId);
+        if (id == null) {
+            return -1;
+        }
+        int slot = findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        return slot < 0 ? -1 : indexOf(tableStarts[slot], id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    // Bland bokningarna med starttiden start
+    private int indexOf(long start, long high, long low) {
+        for (int i = upperBound(start) - 1; i >= 0 && starts[i] == start; i--) {
+            if (idLow[i] == low && idHigh[i] == high) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Fingeravtrycken kan krocka, så varje träff kontrolleras mot id-fälten
+    private int findSlot(long high, long low) {
+        int fingerprint = fingerprint(high, low);
+        int mask = fingerprints.length - 1;
+        for (int slot = fingerprint & mask; fingerprints[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (fingerprints[slot] == fingerprint && indexOf(tableStarts[slot], high, low) >= 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insertIntoTable(int fingerprint, long start) {
+        int mask = fingerprints.length - 1;
+        int slot = fingerprint & mask;
+        while (fingerprints[slot] != EMPTY && fingerprints[slot] != DELETED) {
+            slot = (slot + 1) & mask;
+        }
+        if (fingerprints[slot] == DELETED) {
+            deletedSlots--;
+        }
+        fingerprints[slot] = fingerprint;
+        tableStarts[slot] = start;
+    }
+
+    // Byggs om från fälten, som alltid är sanningen
+    private void rebuildTable() {
+        fingerprints = new int[tableSizeFor(size)];
+        tableStarts = new long[fingerprints.length];
+        deletedSlots = 0;
+        for (int i = 0; i < size; i++) {
+            insertIntoTable(fingerprint(idHigh[i], idLow[i]), starts[i]);
+        }
+    }
+
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(4, entries) * 4 - 1);
+    }
+
+    private static int fingerprint(long high, long low) {
+        long h = (high ^ Long.rotateLeft(low, 32)) * 0x9E3779B97F4A7C15L;
+        int fingerprint = (int) (h ^ (h >>> 32));
+        return fingerprint == EMPTY || fingerprint == DELETED ? 1 : fingerprint;
+    }
+
+    private static UUID toUuid(String bookingId) {
+        try {
+            return UUID.fromString(bookingId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Första index vars start är efter time
+    private int upperBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        rebuildMaxEnds();
+    }
+
+    // null om id:t inte kan återskapas exakt ur sina 128 bitar
+    private static UUID exactUuid(String bookingId) {
+        UUID id = toUuid(bookingId);
+        return id != null && id.toString().equals(bookingId) ? id : null;
+    }
+
+    private static UUID parseId(String bookingId) {
+        UUID id = exactUuid(bookingId);
+        if (id == null) {
+            throw new IllegalArgumentException(UUID_REQUIRED);
+        }
+        return id;
+    }
+
+    // Samma gränser som clampedNanos, så allt som lagras kan också sökas exakt
+    private static boolean representable(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return seconds > Long.MIN_VALUE / NANOS_PER_SECOND && seconds < Long.MAX_VALUE / NANOS_PER_SECOND;
+    }
+
+    private static long toNanos(LocalDateTime time) {
+        if (!representable(time)) {
+            throw new IllegalArgumentException(OUT_OF_RANGE);
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
+    // Sökintervall utanför det representerbara begränsas till ytterkanterna
+    private static long clampedNanos(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / NANOS_PER_SECOND) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * NANOS_PER_SECOND + time.getNano();
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
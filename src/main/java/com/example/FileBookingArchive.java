@@ -0,0 +1,240 @@
+package com.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Arkiv i en fil där varje append blir ett deflate-komprimerat segment. Segmentets huvud
+// innehåller tidsspannet för dess bokningar, så att sökningar bara packar upp segment som
+// kan innehålla träffar. Huvudena läses in vid start, en avbruten skrivning i slutet kapas.
+public class FileBookingArchive implements BookingArchive, AutoCloseable {
+    private static final String ARCHIVE_FILE = "bookings.archive";
+    // längd, antal, första start, sista slut, kontrollsumma
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    private final FileChannel channel;
+    private final List<Segment> segments = new ArrayList<>();
+    private long bookingCount;
+
+    public FileBookingArchive(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(directory.resolve(ARCHIVE_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            readSegmentHeaders();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte öppna bokningsarkivet i " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void append(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        long firstStart = Long.MAX_VALUE;
+        long lastEnd = Long.MIN_VALUE;
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            for (Booking booking : bookings) {
+                out.writeUTF(booking.getId());
+                out.writeUTF(booking.getRoomId());
+                writeTime(out, booking.getStartTime());
+                writeTime(out, booking.getEndTime());
+                firstStart = Math.min(firstStart, booking.getStartTime().toEpochSecond(ZoneOffset.UTC));
+                lastEnd = Math.max(lastEnd, booking.getEndTime().toEpochSecond(ZoneOffset.UTC));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte serialisera bokningar", e);
+        }
+        byte[] compressed = deflate(raw.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + compressed.length);
+        buffer.putInt(compressed.length).putInt(bookings.size()).putLong(firstStart).putLong(lastEnd)
+                .putInt(checksum(compressed)).put(compressed).flip();
+        try {
+            long position = channel.size();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            channel.force(false);
+            segments.add(new Segment(position + HEADER_SIZE, compressed.length, firstStart, lastEnd));
+            bookingCount += bookings.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skriva till bokningsarkivet", e);
+        }
+    }
+
+    @Override
+    public List<Booking> findBookings(String roomId, LocalDateTime from, LocalDateTime to) {
+        // Sekundgränserna i huvudet är avrundade nedåt, därför jämförs med hela sekunder
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        List<Segment> matching = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if (segment.firstStart <= toSecond && segment.lastEnd >= fromSecond) {
+                    matching.add(segment);
+                }
+            }
+        }
+        List<Booking> found = new ArrayList<>();
+        for (Segment segment : matching) {
+            for (Booking booking : readSegment(segment)) {
+                if ((roomId == null || roomId.equals(booking.getRoomId())) && booking.overlaps(from, to)) {
+                    found.add(booking);
+                }
+            }
+        }
+        return found;
+    }
+
+    public synchronized long getBookingCount() {
+        return bookingCount;
+    }
+
+    public synchronized long getSizeInBytes() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte läsa arkivets storlek", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte stänga bokningsarkivet", e);
+        }
+    }
+
+    private void readSegmentHeaders() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int count = header.getInt();
+            long firstStart = header.getLong();
+            long lastEnd = header.getLong();
+            int checksum = header.getInt();
+            if (length < 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_SIZE);
+            if (checksum(payload.array()) != checksum) {
+                break;
+            }
+            segments.add(new Segment(position + HEADER_SIZE, length, firstStart, lastEnd));
+            bookingCount += count;
+            position += HEADER_SIZE + length;
+        }
+        // Avbruten skrivning, nästa segment skrivs där den började
+        if (position < size) {
+            channel.truncate(position);
+        }
+    }
+
+    private List<Booking> readSegment(Segment segment) {
+        ByteBuffer payload = ByteBuffer.allocate(segment.length);
+        try {
+            readFully(payload, segment.offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte läsa bokningsarkivet", e);
+        }
+        List<Booking> bookings = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(payload.array())))) {
+            while (in.available() > 0) {
+                bookings.add(new Booking(in.readUTF(), in.readUTF(), readTime(in), readTime(in)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Skadat segment i bokningsarkivet", e);
+        }
+        return bookings;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Oväntat slut på bokningsarkivet");
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] chunk = new byte[8 * 1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] chunk = new byte[8 * 1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(chunk);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Ofullständigt segment i bokningsarkivet");
+                }
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Skadat segment i bokningsarkivet", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private record Segment(long offset, int length, long firstStart, long lastEnd) {
+    }
+}
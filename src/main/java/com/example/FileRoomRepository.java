@@ -0,0 +1,526 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+// Filbaserat repository: ändringar läggs till i en minnesmappad skrivlogg (WAL) och
+// skrivs med jämna mellanrum ihop till en kompakt binär ögonblicksbild. Vid start läses
+// ögonblicksbilden och loggens svans spelas upp igen.
+public class FileRoomRepository implements RoomRepository, AutoCloseable {
+    private static final String SNAPSHOT_FILE = "rooms.snapshot";
+    private static final String LOG_FILE = "rooms.wal";
+    private static final int SNAPSHOT_MAGIC = 0x524F4F4D;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int DEFAULT_LOG_CAPACITY = 16 * 1024 * 1024;
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final byte ROOM_SAVED = 1;
+    private static final byte BOOKING_ADDED = 2;
+    private static final byte BOOKING_REMOVED = 3;
+    private static final byte RECURRING_ADDED = 4;
+    private static final byte RECURRING_REMOVED = 5;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final int snapshotInterval;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    // Vad som finns persisterat per rum, för att räkna ut vad save(room) ska logga
+    private final Map<String, Set<String>> persistedBookingIds = new ConcurrentHashMap<>();
+    private final Map<String, String> roomIdByBookingId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> persistedRecurringIds = new ConcurrentHashMap<>();
+
+    private FileChannel logChannel;
+    private MappedByteBuffer log;
+    private int recordsSinceSnapshot;
+
+    public FileRoomRepository(Path directory) {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public FileRoomRepository(Path directory, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Intervallet för ögonblicksbilder måste vara positivt");
+        }
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.logFile = directory.resolve(LOG_FILE);
+        this.snapshotInterval = snapshotInterval;
+        try {
+            Files.createDirectories(directory);
+            loadSnapshot();
+            openLog();
+            replayLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte öppna rumsregistret i " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        return Optional.ofNullable(rooms.get(id));
+    }
+
+    @Override
+    public List<Room> findAll() {
+        return List.copyOf(rooms.values());
+    }
+
+    @Override
+    public Optional<Room> findByBookingId(String bookingId) {
+        String roomId = roomIdByBookingId.get(bookingId);
+        return roomId == null ? Optional.empty() : findById(roomId);
+    }
+
+    @Override
+    public synchronized void save(Room room) {
+        Set<String> persisted = persistedBookingIds.get(room.getId());
+        if (persisted == null || rooms.get(room.getId()) != room) {
+            appendRoomSaved(room);
+            persisted = persistedBookingIds.computeIfAbsent(room.getId(), id -> new HashSet<>());
+            rooms.put(room.getId(), room);
+        }
+        saveRecurringBookings(room);
+
+        Set<String> current = new HashSet<>();
+        for (Booking booking : room.getBookings()) {
+            current.add(booking.getId());
+            if (!persisted.contains(booking.getId())) {
+                appendBookingAdded(booking);
+                persisted.add(booking.getId());
+                roomIdByBookingId.put(booking.getId(), room.getId());
+            }
+        }
+        for (String bookingId : List.copyOf(persisted)) {
+            if (!current.contains(bookingId)) {
+                appendBookingRemoved(room.getId(), bookingId);
+                persisted.remove(bookingId);
+                roomIdByBookingId.remove(bookingId);
+            }
+        }
+
+        snapshotIfDue();
+    }
+
+    @Override
+    public synchronized void addBooking(Room room, Booking booking) {
+        Set<String> persisted = persistedBookingIds.get(room.getId());
+        if (persisted == null || rooms.get(room.getId()) != room) {
+            save(room);
+            return;
+        }
+        if (persisted.add(booking.getId())) {
+            appendBookingAdded(booking);
+            roomIdByBookingId.put(booking.getId(), room.getId());
+            snapshotIfDue();
+        }
+    }
+
+    @Override
+    public synchronized void addBookings(Room room, List<Booking> bookings) {
+        for (Booking booking : bookings) {
+            addBooking(room, booking);
+        }
+    }
+
+    @Override
+    public synchronized void removeBooking(Room room, String bookingId) {
+        Set<String> persisted = persistedBookingIds.get(room.getId());
+        if (persisted == null || rooms.get(room.getId()) != room) {
+            save(room);
+            return;
+        }
+        if (persisted.remove(bookingId)) {
+            appendBookingRemoved(room.getId(), bookingId);
+            roomIdByBookingId.remove(bookingId);
+            snapshotIfDue();
+        }
+    }
+
+    @Override
+    public synchronized void removeBookings(Room room, List<String> bookingIds) {
+        for (String bookingId : bookingIds) {
+            removeBooking(room, bookingId);
+        }
+    }
+
+    @Override
+    public synchronized void addRecurringBooking(Room room, RecurringBooking recurringBooking) {
+        Set<String> persisted = persistedRecurringIds.get(room.getId());
+        if (persisted == null || rooms.get(room.getId()) != room) {
+            save(room);
+            return;
+        }
+        if (persisted.add(recurringBooking.getId())) {
+            appendRecurringAdded(recurringBooking);
+            snapshotIfDue();
+        }
+    }
+
+    @Override
+    public synchronized void removeRecurringBooking(Room room, String recurringBookingId) {
+        Set<String> persisted = persistedRecurringIds.get(room.getId());
+        if (persisted == null || rooms.get(room.getId()) != room) {
+            save(room);
+            return;
+        }
+        if (persisted.remove(recurringBookingId)) {
+            appendRecurringRemoved(room.getId(), recurringBookingId);
+            snapshotIfDue();
+        }
+    }
+
+    // Skriver hela tillståndet till en ny ögonblicksbild och tömmer loggen
+    public synchronized void snapshot() {
+        Path temporary = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(rooms.size());
+            for (Room room : rooms.values()) {
+                out.writeUTF(room.getId());
+                out.writeUTF(room.getName());
+                out.writeByte(room.getStorage().ordinal());
+                List<Booking> bookings = new ArrayList<>(room.getBookings());
+                out.writeInt(bookings.size());
+                for (Booking booking : bookings) {
+                    out.writeUTF(booking.getId());
+                    writeTime(out, booking.getStartTime());
+                    writeTime(out, booking.getEndTime());
+                }
+                List<RecurringBooking> recurringBookings = new ArrayList<>(room.getRecurringBookings());
+                out.writeInt(recurringBookings.size());
+                for (RecurringBooking recurring : recurringBookings) {
+                    out.writeUTF(recurring.getId());
+                    writeTime(out, recurring.getFirstStart());
+                    writeTime(out, recurring.getFirstStart().plus(recurring.getDuration()));
+                    out.writeByte(recurring.getFrequency().ordinal());
+                    out.writeLong(recurring.getOccurrences());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skriva ögonblicksbild", e);
+        }
+        try {
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte ersätta ögonblicksbild", e);
+        }
+        // Uppspelning är idempotent, så en krasch innan loggen nollställts ger samma tillstånd
+        clearLog();
+    }
+
+    public synchronized void flush() {
+        log.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            log.force();
+            logChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte stänga skrivloggen", e);
+        }
+    }
+
+    private void saveRecurringBookings(Room room) {
+        Set<String> persisted = persistedRecurringIds.computeIfAbsent(room.getId(), id -> new HashSet<>());
+        Set<String> current = new HashSet<>();
+        for (RecurringBooking recurring : room.getRecurringBookings()) {
+            current.add(recurring.getId());
+            if (persisted.add(recurring.getId())) {
+                appendRecurringAdded(recurring);
+            }
+        }
+        for (String recurringId : List.copyOf(persisted)) {
+            if (!current.contains(recurringId)) {
+                appendRecurringRemoved(room.getId(), recurringId);
+                persisted.remove(recurringId);
+            }
+        }
+    }
+
+    private void snapshotIfDue() {
+        if (recordsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Okänt format på ögonblicksbild " + snapshotFile);
+            }
+            int roomCount = in.readInt();
+            for (int r = 0; r < roomCount; r++) {
+                Room room = applyRoomSaved(in.readUTF(), in.readUTF(), storageOf(in.readByte()));
+                int bookingCount = in.readInt();
+                for (int b = 0; b < bookingCount; b++) {
+                    applyBookingAdded(new Booking(in.readUTF(), room.getId(), readTime(in), readTime(in)));
+                }
+                int recurringCount = in.readInt();
+                for (int b = 0; b < recurringCount; b++) {
+                    applyRecurringAdded(new RecurringBooking(in.readUTF(), room.getId(), readTime(in), readTime(in),
+                            RecurringBooking.Frequency.values()[in.readByte()], in.readLong()));
+                }
+            }
+        }
+    }
+
+    private void openLog() throws IOException {
+        logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long capacity = Math.max(logChannel.size(), DEFAULT_LOG_CAPACITY);
+        log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    // Spelar upp poster tills loggen tar slut eller en ofullständig post hittas
+    private void replayLog() {
+        while (log.remaining() >= Integer.BYTES * 2) {
+            int start = log.position();
+            int length = log.getInt();
+            if (length == 0) {
+                log.position(start);
+                return;
+            }
+            if (length < 0 || length > log.remaining() - Integer.BYTES || !replayRecord(length)) {
+                // Avbruten skrivning, resten av loggen nollas så att nya poster kan skrivas här
+                zero(start, log.capacity());
+                log.position(start);
+                return;
+            }
+            recordsSinceSnapshot++;
+        }
+    }
+
+    private boolean replayRecord(int length) {
+        byte[] payload = new byte[length];
+        log.get(payload);
+        if (log.getInt() != checksum(payload)) {
+            return false;
+        }
+        try {
+            applyRecord(ByteBuffer.wrap(payload));
+            return true;
+        } catch (BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    private void applyRecord(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case ROOM_SAVED -> applyRoomSaved(getString(record), getString(record), storageOf(record.get()));
+            case BOOKING_ADDED -> applyBookingAdded(new Booking(getString(record), getString(record),
+                    getTime(record), getTime(record)));
+            case BOOKING_REMOVED -> applyBookingRemoved(getString(record), getString(record));
+            case RECURRING_ADDED -> applyRecurringAdded(new RecurringBooking(getString(record), getString(record),
+                    getTime(record), getTime(record), getFrequency(record), record.getLong()));
+            case RECURRING_REMOVED -> applyRecurringRemoved(getString(record), getString(record));
+            default -> throw new BufferUnderflowException();
+        }
+    }
+
+    private Room applyRoomSaved(String roomId, String name, Room.Storage storage) {
+        Room existing = rooms.get(roomId);
+        Room room = new Room(roomId, name, storage);
+        if (existing != null) {
+            existing.getBookings().forEach(room::addBooking);
+            existing.getRecurringBookings().forEach(room::addRecurringBooking);
+        }
+        rooms.put(roomId, room);
+        persistedBookingIds.computeIfAbsent(roomId, id -> new HashSet<>());
+        persistedRecurringIds.computeIfAbsent(roomId, id -> new HashSet<>());
+        return room;
+    }
+
+    private void applyBookingAdded(Booking booking) {
+        Room room = rooms.get(booking.getRoomId());
+        if (room != null) {
+            room.addBooking(booking);
+            persistedBookingIds.get(room.getId()).add(booking.getId());
+            roomIdByBookingId.put(booking.getId(), room.getId());
+        }
+    }
+
+    private void applyBookingRemoved(String roomId, String bookingId) {
+        Room room = rooms.get(roomId);
+        if (room != null) {
+            room.removeBooking(bookingId);
+            persistedBookingIds.get(roomId).remove(bookingId);
+            roomIdByBookingId.remove(bookingId);
+        }
+    }
+
+    private void applyRecurringAdded(RecurringBooking recurringBooking) {
+        Room room = rooms.get(recurringBooking.getRoomId());
+        if (room != null) {
+            room.addRecurringBooking(recurringBooking);
+            persistedRecurringIds.get(room.getId()).add(recurringBooking.getId());
+        }
+    }
+
+    private void applyRecurringRemoved(String roomId, String recurringBookingId) {
+        Room room = rooms.get(roomId);
+        if (room != null) {
+            room.removeRecurringBooking(recurringBookingId);
+            persistedRecurringIds.get(roomId).remove(recurringBookingId);
+        }
+    }
+
+    private void appendRoomSaved(Room room) {
+        byte[] id = utf8(room.getId());
+        byte[] name = utf8(room.getName());
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + id.length + 4 + name.length + 1);
+        record.put(ROOM_SAVED).putInt(id.length).put(id).putInt(name.length).put(name)
+                .put((byte) room.getStorage().ordinal());
+        append(record.array());
+    }
+
+    private void appendBookingAdded(Booking booking) {
+        byte[] id = utf8(booking.getId());
+        byte[] roomId = utf8(booking.getRoomId());
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + id.length + 4 + roomId.length + 2 * (8 + 4));
+        record.put(BOOKING_ADDED).putInt(id.length).put(id).putInt(roomId.length).put(roomId);
+        putTime(record, booking.getStartTime());
+        putTime(record, booking.getEndTime());
+        append(record.array());
+    }
+
+    private void appendBookingRemoved(String roomId, String bookingId) {
+        byte[] room = utf8(roomId);
+        byte[] id = utf8(bookingId);
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + room.length + 4 + id.length);
+        record.put(BOOKING_REMOVED).putInt(room.length).put(room).putInt(id.length).put(id);
+        append(record.array());
+    }
+
+    private void appendRecurringAdded(RecurringBooking recurringBooking) {
+        byte[] id = utf8(recurringBooking.getId());
+        byte[] roomId = utf8(recurringBooking.getRoomId());
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + id.length + 4 + roomId.length + 2 * (8 + 4) + 1 + 8);
+        record.put(RECURRING_ADDED).putInt(id.length).put(id).putInt(roomId.length).put(roomId);
+        putTime(record, recurringBooking.getFirstStart());
+        putTime(record, recurringBooking.getFirstStart().plus(recurringBooking.getDuration()));
+        record.put((byte) recurringBooking.getFrequency().ordinal()).putLong(recurringBooking.getOccurrences());
+        append(record.array());
+    }
+
+    private void appendRecurringRemoved(String roomId, String recurringBookingId) {
+        byte[] room = utf8(roomId);
+        byte[] id = utf8(recurringBookingId);
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + room.length + 4 + id.length);
+        record.put(RECURRING_REMOVED).putInt(room.length).put(room).putInt(id.length).put(id);
+        append(record.array());
+    }
+
+    private void append(byte[] payload) {
+        int needed = Integer.BYTES + payload.length + Integer.BYTES;
+        if (log.remaining() < needed + Integer.BYTES) {
+            growLog(needed);
+        }
+        log.putInt(payload.length).put(payload).putInt(checksum(payload));
+        recordsSinceSnapshot++;
+    }
+
+    private void growLog(int needed) {
+        int position = log.position();
+        long capacity = Math.max((long) log.capacity() * 2, position + needed + Integer.BYTES);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Skrivloggen är full");
+        }
+        try {
+            log.force();
+            log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            log.position(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte utöka skrivloggen", e);
+        }
+    }
+
+    private void clearLog() {
+        zero(0, log.position());
+        log.position(0);
+        log.force();
+        recordsSinceSnapshot = 0;
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[Math.min(64 * 1024, Math.max(1, to - from))];
+        for (int position = from; position < to; position += zeros.length) {
+            log.put(position, zeros, 0, Math.min(zeros.length, to - position));
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static RecurringBooking.Frequency getFrequency(ByteBuffer buffer) {
+        int ordinal = buffer.get();
+        if (ordinal < 0 || ordinal >= RecurringBooking.Frequency.values().length) {
+            throw new BufferUnderflowException();
+        }
+        return RecurringBooking.Frequency.values()[ordinal];
+    }
+
+    private static Room.Storage storageOf(int ordinal) {
+        if (ordinal < 0 || ordinal >= Room.Storage.values().length) {
+            throw new BufferUnderflowException();
+        }
+        return Room.Storage.values()[ordinal];
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+public class InMemoryRoomRepository implements RoomRepository {
+    // Sorterad på id så att streamAll kan börja direkt efter en markör
+    private final ConcurrentNavigableMap<String, Room> rooms = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Optional<Room> findById(String id) {
+        return Optional.ofNullable(rooms.get(id));
+    }
+
+    @Override
+    public List<Room> findAll() {
+        return List.copyOf(rooms.values());
+    }
+
+    @Override
+    public Stream<Room> streamAll(String afterRoomId) {
+        return (afterRoomId == null ? rooms : rooms.tailMap(afterRoomId, false)).values().stream();
+    }
+
+    @Override
+    public void save(Room room) {
+        rooms.put(room.getId(), room);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Bokningsobjekten i ett intervallträd sorterat på starttid, plus uppslag på id
+final class IndexedBookingStore implements BookingStore {
+    private final BookingIntervalTree bookingsByStart = new BookingIntervalTree();
+    private final Map<String, Booking> bookingsById = new HashMap<>();
+
+    @Override
+    public String rejectionReason(Booking booking) {
+        return null;
+    }
+
+    @Override
+    public void add(Booking booking) {
+        Booking previous = bookingsById.put(booking.getId(), booking);
+        if (previous != null) {
+            bookingsByStart.remove(previous);
+        }
+        bookingsByStart.add(booking);
+    }
+
+    @Override
+    public void remove(String bookingId) {
+        Booking booking = bookingsById.remove(bookingId);
+        if (booking != null) {
+            bookingsByStart.remove(booking);
+        }
+    }
+
+    @Override
+    public List<Booking> removeEndedBefore(LocalDateTime time) {
+        // En bokning som slutat före time har också börjat före time
+        List<Booking> ended = bookingsByStart.stream(LocalDateTime.MIN, time)
+                .filter(booking -> booking.getEndTime().isBefore(time))
+                .toList();
+        for (Booking booking : ended) {
+            remove(booking.getId());
+        }
+        return ended;
+    }
+
+    @Override
+    public boolean contains(String bookingId) {
+        return bookingsById.containsKey(bookingId);
+    }
+
+    @Override
+    public Booking get(String bookingId) {
+        return bookingsById.get(bookingId);
+    }
+
+    @Override
+    public Collection<Booking> all() {
+        return List.copyOf(bookingsById.values());
+    }
+
+    @Override
+    public boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime) {
+        return bookingsByStart.overlapsAny(startTime, endTime);
+    }
+
+    @Override
+    public Stream<Booking> candidates(LocalDateTime startTime, LocalDateTime endTime) {
+        return bookingsByStart.stream(startTime, endTime);
+    }
+
+    @Override
+    public Stream<Booking> inStartOrderFrom(LocalDateTime time) {
+        return bookingsByStart.stream(time, null);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Map med primitiva int-nycklar (öppen adressering, linjär sondering) som behåller
+// insättningsordningen. Värden får inte vara null.
+final class IntKeyedMap<V> {
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    // Poster i insättningsordning, borttagna poster lämnar null tills de komprimeras bort
+    private int[] keys;
+    private Object[] values;
+    private int entryCount;
+    private int size;
+
+    // Hashtabell med postindex + 1, EMPTY eller DELETED
+    private int[] table;
+    private int deletedSlots;
+
+    IntKeyedMap() {
+        this(8);
+    }
+
+    IntKeyedMap(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        keys = new int[capacity];
+        values = new Object[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[table[slot] - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int entry = table[slot] - 1;
+            V previous = (V) values[entry];
+            values[entry] = value;
+            return previous;
+        }
+        if (entryCount == keys.length) {
+            resizeEntries();
+        }
+        if ((size + deletedSlots + 1) * 2 > table.length) {
+            rehash(table.length * (size * 4 > table.length ? 2 : 1));
+        }
+        int entry = entryCount++;
+        keys[entry] = key;
+        values[entry] = value;
+        size++;
+        insertIntoTable(key, entry);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = table[slot] - 1;
+        V previous = (V) values[entry];
+        values[entry] = null;
+        table[slot] = DELETED;
+        deletedSlots++;
+        size--;
+        if (entry == entryCount - 1) {
+            entryCount--;
+        }
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Consumer<? super V> action) {
+        for (int i = 0; i < entryCount; i++) {
+            if (values[i] != null) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0, entryCount, null);
+        Arrays.fill(table, EMPTY);
+        entryCount = 0;
+        size = 0;
+        deletedSlots = 0;
+    }
+
+    private int findSlot(int key) {
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED && keys[entry - 1] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private void insertIntoTable(int key, int entry) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] > 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (table[slot] == DELETED) {
+            deletedSlots--;
+        }
+        table[slot] = entry + 1;
+    }
+
+    // Komprimerar bort borttagna poster om de är många, annars dubblas kapaciteten
+    private void resizeEntries() {
+        if (size * 2 <= entryCount) {
+            compact();
+        } else {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        rehash(tableSizeFor(keys.length));
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (values[i] != null) {
+                keys[target] = keys[i];
+                values[target] = values[i];
+                target++;
+            }
+        }
+        Arrays.fill(values, target, entryCount, null);
+        entryCount = target;
+    }
+
+    private void rehash(int tableSize) {
+        table = new int[tableSize];
+        deletedSlots = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (values[i] != null) {
+                insertIntoTable(keys[i], i);
+            }
+        }
+    }
+
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(4, entries) * 4 - 1);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example;
+
+// Latens i mikrosekunder vid ett visst tillfälle, visas som CompositeData via JMX
+public class LatencySnapshot {
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    public LatencySnapshot(long count, double meanMicros, double p50Micros, double p99Micros,
+                           double p999Micros, double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+}
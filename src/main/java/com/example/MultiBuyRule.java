@@ -0,0 +1,7 @@
+package com.example;
+
+import java.math.BigDecimal;
+
+// Flerköp, t.ex. 3 för 10 kr. Varje hel grupp om quantity kostar price.
+public record MultiBuyRule(int barcode, int quantity, BigDecimal price) implements PricingRule {
+}
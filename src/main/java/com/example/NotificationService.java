@@ -1,6 +1,22 @@
 package com.example;
 
+import java.util.List;
+
 public interface NotificationService {
     void sendBookingConfirmation(Booking booking) throws NotificationException;
     void sendCancellationConfirmation(Booking booking) throws NotificationException;
+
+    // Skickar flera på en gång. Standard är en i taget, en tjänst med massutskick kan skicka
+    // hela listan i ett anrop. Ett misslyckat anrop kan komma att göras om med hela listan.
+    default void sendBookingConfirmations(List<Booking> bookings) throws NotificationException {
+        for (Booking booking : bookings) {
+            sendBookingConfirmation(booking);
+        }
+    }
+
+    default void sendCancellationConfirmations(List<Booking> bookings) throws NotificationException {
+        for (Booking booking : bookings) {
+            sendCancellationConfirmation(booking);
+        }
+    }
 }
@@ -0,0 +1,5 @@
+package com.example;
+
+// Kampanjregel för varukorgen, kompileras till en uppslagstabell av PricingRules
+public interface PricingRule {
+}
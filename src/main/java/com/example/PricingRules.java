@@ -0,0 +1,150 @@
+package com.example;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Kampanjregler kompilerade en gång till en tabell per streckkod, så att en ändring i
+// varukorgen bara räknar om regeln för den ändrade varan. En streckkod får ingå i högst en
+// flerköps- eller paketregel, annars skulle rabatterna räknas dubbelt. Av korgrabatterna
+// gäller den högsta vars tröskel nås. Rabatterna räknas på priset efter varans egen rabatt.
+public final class PricingRules {
+    private final IntKeyedMap<LineRule> rulesByBarcode = new IntKeyedMap<>();
+    private final int lineRuleCount;
+    // Tröskel -> högsta procentsats som gäller från den tröskeln
+    private final TreeMap<BigDecimal, Integer> cartDiscounts = new TreeMap<>();
+
+    public PricingRules(List<? extends PricingRule> rules) {
+        int index = 0;
+        TreeMap<BigDecimal, Integer> byThreshold = new TreeMap<>();
+        for (PricingRule rule : rules) {
+            switch (rule) {
+                case MultiBuyRule multiBuy -> {
+                    if (multiBuy.quantity() < 2 || multiBuy.price() == null || multiBuy.price().signum() < 0) {
+                        throw new IllegalArgumentException("Flerköp måste gälla minst två varor till ett pris som inte är negativt");
+                    }
+                    register(new MultiBuy(index++, multiBuy.barcode(), multiBuy.quantity(), multiBuy.price()));
+                }
+                case BundleRule bundle -> {
+                    Set<Integer> barcodes = new LinkedHashSet<>(bundle.barcodes());
+                    if (barcodes.size() < 2 || barcodes.size() != bundle.barcodes().size()
+                            || bundle.price() == null || bundle.price().signum() < 0) {
+                        throw new IllegalArgumentException("Paket måste innehålla minst två olika varor till ett pris som inte är negativt");
+                    }
+                    register(new Bundle(index++, barcodes.stream().mapToInt(Integer::intValue).toArray(), bundle.price()));
+                }
+                case CartDiscountRule cartDiscount -> {
+                    if (cartDiscount.threshold() == null || cartDiscount.percent() <= 0 || cartDiscount.percent() > 100) {
+                        throw new IllegalArgumentException("Korgrabatt måste ha en tröskel och en procentsats mellan 1 och 100");
+                    }
+                    byThreshold.merge(cartDiscount.threshold(), cartDiscount.percent(), Math::max);
+                }
+                default -> throw new IllegalArgumentException("Okänd kampanjregel: " + rule);
+            }
+        }
+        lineRuleCount = index;
+        // En högre tröskel ska aldrig ge lägre rabatt än en lägre som också nås
+        int best = 0;
+        for (Map.Entry<BigDecimal, Integer> entry : byThreshold.entrySet()) {
+            if (entry.getValue() > best) {
+                best = entry.getValue();
+                cartDiscounts.put(entry.getKey(), best);
+            }
+        }
+    }
+
+    int getLineRuleCount() {
+        return lineRuleCount;
+    }
+
+    // null om varan inte ingår i någon flerköps- eller paketregel
+    LineRule ruleFor(int barcode) {
+        return rulesByBarcode.get(barcode);
+    }
+
+    // Andel av summan som dras av, t.ex. 0.1, eller noll
+    BigDecimal cartDiscountRate(BigDecimal subtotal) {
+        Map.Entry<BigDecimal, Integer> entry = cartDiscounts.floorEntry(subtotal);
+        return entry == null ? BigDecimal.ZERO : BigDecimal.valueOf(entry.getValue(), 2).stripTrailingZeros();
+    }
+
+    private void register(LineRule rule) {
+        for (int barcode : rule.barcodes) {
+            if (rulesByBarcode.put(barcode, rule) != null) {
+                throw new IllegalArgumentException("Streckkoden " + barcode + " ingår i flera kampanjer");
+            }
+        }
+    }
+
+    // Styckpris efter varans egen procentrabatt
+    private static BigDecimal unitPrice(Item item) {
+        if (item.discount() <= 0) {
+            return item.price();
+        }
+        BigDecimal discountRate = BigDecimal.valueOf(item.discount(), 2).stripTrailingZeros();
+        return item.price().subtract(item.price().multiply(discountRate));
+    }
+
+    abstract static sealed class LineRule permits MultiBuy, Bundle {
+        // Plats i varukorgens tabell över aktuella rabatter
+        final int index;
+        final int[] barcodes;
+
+        LineRule(int index, int[] barcodes) {
+            this.index = index;
+            this.barcodes = barcodes;
+        }
+
+        // Rabatt för regeln givet varukorgens nuvarande rader, aldrig negativ
+        abstract BigDecimal discount(IntKeyedMap<Item> lines);
+    }
+
+    private static final class MultiBuy extends LineRule {
+        private final int quantity;
+        private final BigDecimal price;
+
+        private MultiBuy(int index, int barcode, int quantity, BigDecimal price) {
+            super(index, new int[]{barcode});
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        @Override
+        BigDecimal discount(IntKeyedMap<Item> lines) {
+            Item item = lines.get(barcodes[0]);
+            if (item == null || item.quantity() < quantity) {
+                return BigDecimal.ZERO;
+            }
+            BigDecimal perGroup = unitPrice(item).multiply(BigDecimal.valueOf(quantity)).subtract(price);
+            return perGroup.signum() <= 0 ? BigDecimal.ZERO : perGroup.multiply(BigDecimal.valueOf(item.quantity() / quantity));
+        }
+    }
+
+    private static final class Bundle extends LineRule {
+        private final BigDecimal price;
+
+        private Bundle(int index, int[] barcodes, BigDecimal price) {
+            super(index, barcodes);
+            this.price = price;
+        }
+
+        @Override
+        BigDecimal discount(IntKeyedMap<Item> lines) {
+            int bundles = Integer.MAX_VALUE;
+            BigDecimal regular = BigDecimal.ZERO;
+            for (int barcode : barcodes) {
+                Item item = lines.get(barcode);
+                if (item == null || item.quantity() <= 0) {
+                    return BigDecimal.ZERO;
+                }
+                bundles = Math.min(bundles, item.quantity());
+                regular = regular.add(unitPrice(item));
+            }
+            BigDecimal perBundle = regular.subtract(price);
+            return perBundle.signum() <= 0 ? BigDecimal.ZERO : perBundle.multiply(BigDecimal.valueOf(bundles));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+// En återkommande bokning, t.ex. varje måndag 9-10 i två år. Förekomsterna lagras inte,
+// överlappningar räknas ut aritmetiskt och förekomster skapas bara när ett tidsfönster itereras.
+public class RecurringBooking {
+    public enum Frequency {
+        DAILY(Duration.ofDays(1)),
+        WEEKLY(Duration.ofDays(7));
+
+        private final Duration period;
+
+        Frequency(Duration period) {
+            this.period = period;
+        }
+
+        public Duration getPeriod() {
+            return period;
+        }
+    }
+
+    private final String id;
+    private final String roomId;
+    private final LocalDateTime firstStart;
+    private final Duration duration;
+    private final Frequency frequency;
+    private final long occurrences;
+
+    public RecurringBooking(String id, String roomId, LocalDateTime firstStart, LocalDateTime firstEnd,
+                            Frequency frequency, long occurrences) {
+        if (firstEnd.isBefore(firstStart) || occurrences <= 0) {
+            throw new IllegalArgumentException("Återkommande bokning kräver giltig tid och minst en förekomst");
+        }
+        if (Duration.between(firstStart, firstEnd).compareTo(frequency.getPeriod()) >= 0) {
+            throw new IllegalArgumentException("Förekomsterna i en återkommande bokning får inte överlappa varandra");
+        }
+        // Överlappningarna räknas i nanosekunder, hela seriens spann måste rymmas i en long
+        try {
+            long span = Math.addExact(Math.multiplyExact(frequency.getPeriod().toNanos(), occurrences - 1),
+                    Duration.between(firstStart, firstEnd).toNanos());
+            firstStart.plusNanos(span);
+        } catch (ArithmeticException | DateTimeException e) {
+            throw new IllegalArgumentException("För många förekomster i återkommande bokning");
+        }
+        this.id = id;
+        this.roomId = roomId;
+        this.firstStart = firstStart;
+        this.duration = Duration.between(firstStart, firstEnd);
+        this.frequency = frequency;
+        this.occurrences = occurrences;
+    }
+
+    // Alla förekomster som börjar senast until
+    public RecurringBooking(String id, String roomId, LocalDateTime firstStart, LocalDateTime firstEnd,
+                            Frequency frequency, LocalDateTime until) {
+        this(id, roomId, firstStart, firstEnd, frequency, occurrencesUntil(firstStart, frequency, until));
+    }
+
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        return lastOverlappingIndex(start, end) >= 0;
+    }
+
+    // Sluttiden för den sista förekomsten som överlappar [start, end], null om ingen gör det
+    public LocalDateTime lastOverlappingEnd(LocalDateTime start, LocalDateTime end) {
+        long index = lastOverlappingIndex(start, end);
+        return index < 0 ? null : firstStart.plus(frequency.getPeriod().multipliedBy(index)).plus(duration);
+    }
+
+    private long lastOverlappingIndex(LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(firstStart) || start.isAfter(getLastEnd())) {
+            return -1;
+        }
+        // Begränsa intervallet till seriens spann så att nanosekunderna ryms i en long
+        LocalDateTime from = start.isBefore(firstStart.minus(duration)) ? firstStart.minus(duration) : start;
+        LocalDateTime to = end.isAfter(getLastStart()) ? getLastStart() : end;
+
+        long period = frequency.getPeriod().toNanos();
+        // Förekomst k överlappar om firstStart + k*period <= to och firstStart + k*period + duration >= from
+        long last = Math.min(occurrences - 1, Duration.between(firstStart, to).toNanos() / period);
+        long earliest = Duration.between(firstStart, from).toNanos() - duration.toNanos();
+        long first = earliest <= 0 ? 0 : Math.ceilDiv(earliest, period);
+        return first <= last ? last : -1;
+    }
+
+    public boolean overlaps(RecurringBooking other) {
+        // Gå igenom den kortare seriens förekomster inom den andras spann
+        RecurringBooking shorter = occurrences <= other.occurrences ? this : other;
+        RecurringBooking longer = shorter == this ? other : this;
+        return shorter.occurrencesBetween(longer.firstStart, longer.getLastEnd())
+                .anyMatch(occurrence -> longer.overlaps(occurrence.getStartTime(), occurrence.getEndTime()));
+    }
+
+    // Förekomster som överlappar [from, to], skapas först när strömmen konsumeras
+    public Stream<Booking> occurrencesBetween(LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(firstStart) || from.isAfter(getLastEnd())) {
+            return Stream.empty();
+        }
+        long period = frequency.getPeriod().toSeconds();
+        LocalDateTime clampedFrom = from.isBefore(firstStart) ? firstStart : from;
+        long firstIndex = Math.max(0, Duration.between(firstStart, clampedFrom.minus(duration)).toSeconds() / period - 1);
+        return LongStream.range(firstIndex, occurrences)
+                .mapToObj(this::occurrence)
+                .dropWhile(occurrence -> occurrence.getEndTime().isBefore(from))
+                .takeWhile(occurrence -> !occurrence.getStartTime().isAfter(to));
+    }
+
+    // Antal förekomster som börjat före time
+    public long occurrencesStartedBefore(LocalDateTime time) {
+        if (!time.isAfter(firstStart)) {
+            return 0;
+        }
+        if (time.isAfter(getLastStart())) {
+            return occurrences;
+        }
+        return Math.ceilDiv(Duration.between(firstStart, time).toNanos(), frequency.getPeriod().toNanos());
+    }
+
+    // Samma serie med bara de första förekomsterna kvar
+    public RecurringBooking truncatedTo(long occurrences) {
+        return new RecurringBooking(id, roomId, firstStart, firstStart.plus(duration), frequency, occurrences);
+    }
+
+    public Booking occurrence(long index) {
+        LocalDateTime start = firstStart.plus(frequency.getPeriod().multipliedBy(index));
+        return new Booking(id + "#" + index, roomId, start, start.plus(duration));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public LocalDateTime getFirstStart() {
+        return firstStart;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public long getOccurrences() {
+        return occurrences;
+    }
+
+    public LocalDateTime getLastStart() {
+        return firstStart.plus(frequency.getPeriod().multipliedBy(occurrences - 1));
+    }
+
+    public LocalDateTime getLastEnd() {
+        return getLastStart().plus(duration);
+    }
+
+    private static long occurrencesUntil(LocalDateTime firstStart, Frequency frequency, LocalDateTime until) {
+        if (until.isBefore(firstStart)) {
+            throw new IllegalArgumentException("Slutdatum måste vara efter första förekomsten");
+        }
+        return Duration.between(firstStart, until).toSeconds() / frequency.getPeriod().toSeconds() + 1;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+public record RecurringBookingCancelled(RecurringBooking recurringBooking, LocalDateTime occurredAt) implements BookingEvent {
+}
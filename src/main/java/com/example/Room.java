@@ -1,43 +1,181 @@
 package com.example;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+// Rummets metoder är synkroniserade så att läsningar är säkra även under samtidiga bokningar.
+// Sammansatta operationer (kontrollera och boka) låses per rum i BookingSystem.
 public class Room {
+    public enum Storage {
+        // Bokningsobjekt i sorterade och id-indexerade mappar
+        INDEXED,
+        // Primitiva fält, kräver UUID som boknings-id. Mindre minne men linjärt id-uppslag.
+        COMPACT
+    }
+
     private final String id;
     private final String name;
-    private final Set<Booking> bookings = new HashSet<>();
+    private final Storage storage;
+    private final BookingStore bookings;
+    // Återkommande bokningar kontrolleras aritmetiskt, deras förekomster lagras inte
+    private final Map<String, RecurringBooking> recurringBookings = new LinkedHashMap<>();
 
     public Room(String id, String name) {
+        this(id, name, Storage.INDEXED);
+    }
+
+    public Room(String id, String name, Storage storage) {
         this.id = id;
         this.name = name;
+        this.storage = storage;
+        this.bookings = storage == Storage.COMPACT ? new CompactBookingStore(id) : new IndexedBookingStore();
+    }
+
+    public synchronized boolean isAvailable(LocalDateTime startTime, LocalDateTime endTime) {
+        for (RecurringBooking recurring : recurringBookings.values()) {
+            if (recurring.overlaps(startTime, endTime)) {
+                return false;
+            }
+        }
+        return !bookings.overlapsAny(startTime, endTime);
+    }
+
+    // Som isAvailable, men bara enstaka bokningar räknas, inte återkommande
+    public synchronized boolean hasBookingBetween(LocalDateTime startTime, LocalDateTime endTime) {
+        return bookings.overlapsAny(startTime, endTime);
+    }
+
+    public synchronized boolean isAvailable(RecurringBooking recurringBooking) {
+        for (RecurringBooking recurring : recurringBookings.values()) {
+            if (recurring.overlaps(recurringBooking)) {
+                return false;
+            }
+        }
+        return bookings.candidates(recurringBooking.getFirstStart(), recurringBooking.getLastEnd())
+                .noneMatch(booking -> recurringBooking.overlaps(booking.getStartTime(), booking.getEndTime()));
+    }
+
+    public synchronized LocalDateTime findNextAvailableStart(LocalDateTime after, Duration duration) {
+        return findNextAvailableStart(after, duration, null);
+    }
+
+    // Tidigaste start ≥ after där [start, start + duration] är ledigt, eller null om en sådan
+    // start inte finns senast notAfter. Bokningarna gås igenom en gång i startordning och
+    // kandidaten flyttas förbi varje krock. Gränserna är inkluderande som i isAvailable, så en
+    // ledig lucka börjar en nanosekund efter föregående boknings slut.
+    public synchronized LocalDateTime findNextAvailableStart(LocalDateTime after, Duration duration, LocalDateTime notAfter) {
+        LocalDateTime candidate = after;
+        Iterator<Booking> inStartOrder = bookings.inStartOrderFrom(after).iterator();
+        Booking next = inStartOrder.hasNext() ? inStartOrder.next() : null;
+        while (notAfter == null || !candidate.isAfter(notAfter)) {
+            LocalDateTime candidateEnd = candidate.plus(duration);
+            while (next != null && next.getEndTime().isBefore(candidate)) {
+                next = inStartOrder.hasNext() ? inStartOrder.next() : null;
+            }
+            if (next != null && !next.getStartTime().isAfter(candidateEnd)) {
+                candidate = next.getEndTime().plusNanos(1);
+                continue;
+            }
+            LocalDateTime blockedUntil = null;
+            for (RecurringBooking recurring : recurringBookings.values()) {
+                LocalDateTime end = recurring.lastOverlappingEnd(candidate, candidateEnd);
+                if (end != null && (blockedUntil == null || end.isAfter(blockedUntil))) {
+                    blockedUntil = end;
+                }
+            }
+            if (blockedUntil == null) {
+                return candidate;
+            }
+            candidate = blockedUntil.plusNanos(1);
+        }
+        return null;
+    }
+
+    // Alla bokningar som överlappar [from, to] sorterade på starttid, inklusive förekomster
+    // av återkommande bokningar som skapas först här
+    public synchronized List<Booking> getBookingsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Booking> result = new ArrayList<>();
+        bookings.candidates(from, to)
+                .filter(booking -> booking.overlaps(from, to))
+                .forEach(result::add);
+        for (RecurringBooking recurring : recurringBookings.values()) {
+            recurring.occurrencesBetween(from, to).forEach(result::add);
+        }
+        result.sort(Comparator.comparing(Booking::getStartTime));
+        return result;
+    }
+
+    // Som getBookingsBetween, men bara enstaka bokningar och i lagringens ordning
+    public synchronized List<Booking> getSingleBookingsBetween(LocalDateTime from, LocalDateTime to) {
+        return bookings.candidates(from, to)
+                .filter(booking -> booking.overlaps(from, to))
+                .toList();
     }
 
-    public boolean isAvailable(LocalDateTime startTime, LocalDateTime endTime) {
-        return bookings.stream()
-                .noneMatch(booking ->
-                        booking.overlaps(startTime, endTime));
+    // null om rummets lagring kan ta emot bokningen, annars varför inte
+    public synchronized String storageRejection(Booking booking) {
+        return bookings.rejectionReason(booking);
     }
 
-    public void addBooking(Booking booking) {
+    public synchronized void addBooking(Booking booking) {
         bookings.add(booking);
     }
 
-    public void removeBooking(String bookingId) {
-        bookings.removeIf(booking -> booking.getId().equals(bookingId));
+    public synchronized void removeBooking(String bookingId) {
+        bookings.remove(bookingId);
+    }
+
+    // Tar bort och returnerar bokningar som slutat före time, t.ex. inför arkivering
+    public synchronized List<Booking> removeBookingsEndedBefore(LocalDateTime time) {
+        return bookings.removeEndedBefore(time);
+    }
+
+    public synchronized boolean hasBooking(String bookingId) {
+        return bookings.contains(bookingId);
+    }
+
+    // I kompakt lagring skapas bokningsobjektet först här
+    public synchronized Booking getBooking(String bookingId) {
+        Booking booking = bookings.get(bookingId);
+        if (booking == null) {
+            throw new IllegalArgumentException("Bokning finns inte");
+        }
+        return booking;
+    }
+
+    public synchronized void addRecurringBooking(RecurringBooking recurringBooking) {
+        recurringBookings.put(recurringBooking.getId(), recurringBooking);
     }
 
-    public boolean hasBooking(String bookingId) {
-        return bookings.stream()
-                .anyMatch(booking -> booking.getId().equals(bookingId));
+    public synchronized void removeRecurringBooking(String recurringBookingId) {
+        recurringBookings.remove(recurringBookingId);
     }
 
-    public Booking getBooking(String bookingId) {
-        return bookings.stream()
-                .filter(booking -> booking.getId().equals(bookingId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Bokning finns inte"));
+    public synchronized boolean hasRecurringBooking(String recurringBookingId) {
+        return recurringBookings.containsKey(recurringBookingId);
+    }
+
+    public synchronized RecurringBooking getRecurringBooking(String recurringBookingId) {
+        RecurringBooking recurringBooking = recurringBookings.get(recurringBookingId);
+        if (recurringBooking == null) {
+            throw new IllegalArgumentException("Återkommande bokning finns inte");
+        }
+        return recurringBooking;
+    }
+
+    public synchronized Collection<RecurringBooking> getRecurringBookings() {
+        return List.copyOf(recurringBookings.values());
+    }
+
+    public synchronized Collection<Booking> getBookings() {
+        return bookings.all();
     }
 
     public String getId() {
@@ -47,4 +185,8 @@ public class Room {
     public String getName() {
         return name;
     }
+
+    public Storage getStorage() {
+        return storage;
+    }
 }
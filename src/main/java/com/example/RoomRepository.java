@@ -1,10 +1,58 @@
 package com.example;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RoomRepository {
     Optional<Room> findById(String id);
     List<Room> findAll();
     void save(Room room);
+
+    // Rummen sorterade på id, efter afterRoomId om det inte är null. Strömmen ska vara lat så
+    // att en anropare som slutar läsa tidigt inte hämtar resten, t.ex. WHERE id > ? ORDER BY id.
+    // Standardimplementationen hämtar och sorterar alla rum.
+    default Stream<Room> streamAll(String afterRoomId) {
+        return findAll().stream()
+                .filter(room -> afterRoomId == null || room.getId().compareTo(afterRoomId) > 0)
+                .sorted(Comparator.comparing(Room::getId));
+    }
+
+    default Stream<Room> streamAll() {
+        return streamAll(null);
+    }
+
+    // Deltaoperationer, implementationer som kan spara en enskild ändring bör ersätta dessa.
+    // Rummet skickas med så att standardimplementationen kan falla tillbaka på save.
+    default void addBooking(Room room, Booking booking) {
+        save(room);
+    }
+
+    default void addBookings(Room room, List<Booking> bookings) {
+        save(room);
+    }
+
+    default void removeBooking(Room room, String bookingId) {
+        save(room);
+    }
+
+    default void removeBookings(Room room, List<String> bookingIds) {
+        save(room);
+    }
+
+    default void addRecurringBooking(Room room, RecurringBooking recurringBooking) {
+        save(room);
+    }
+
+    default void removeRecurringBooking(Room room, String recurringBookingId) {
+        save(room);
+    }
+
+    // Implementationer med eget bokningsindex bör ersätta den linjära sökningen
+    default Optional<Room> findByBookingId(String bookingId) {
+        return findAll().stream()
+                .filter(room -> room.hasBooking(bookingId))
+                .findFirst();
+    }
 }
@@ -0,0 +1,6 @@
+package com.example;
+
+// Sekvensnumren är stigande utan luckor i flödet, en lucka hos en prenumerant betyder
+// att den hann bli omsprungen
+public record SequencedBookingEvent(long sequence, BookingEvent event) {
+}
@@ -1,15 +1,32 @@
 package com.example;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.TreeMap;
 
 public class ShoppingCart {
-    private final List<Item> cart;
+    // Varor per streckkod, i den ordning de först lades i varukorgen
+    private final IntKeyedMap<Item> cart;
+    // Löpande summa som uppdateras vid varje ändring, samt antal rader per skala
+    // så att summan kan returneras med samma skala som en full omräkning skulle ge
+    private BigDecimal total = BigDecimal.ZERO;
+    private final NavigableMap<Integer, Integer> lineScales = new TreeMap<>();
+    // Kampanjer, null om varukorgen saknar sådana. Aktuell rabatt per regel och deras summa
+    // hålls uppdaterade så att en ändring bara räknar om regeln för den ändrade varan.
+    private final PricingRules pricingRules;
+    private final BigDecimal[] ruleDiscounts;
+    private BigDecimal promotionDiscount = BigDecimal.ZERO;
 
     public ShoppingCart() {
-        cart = new ArrayList<>();
+        this(null);
+    }
+
+    public ShoppingCart(PricingRules pricingRules) {
+        cart = new IntKeyedMap<>();
+        this.pricingRules = pricingRules;
+        this.ruleDiscounts = pricingRules != null ? new BigDecimal[pricingRules.getLineRuleCount()] : null;
     }
 
     public void addItem(Item item) {
@@ -21,14 +38,14 @@ public class ShoppingCart {
         if (existingItem.isPresent()) {
             updateItemQuantity(existingItem.get(), item.quantity());
         } else {
-            cart.add(item);
+            cart.put(item.barcode(), item);
+            addToTotal(item);
+            reprice(item.barcode());
         }
     }
 
     private Optional<Item> findItemByBarCode(int barcode) {
-        return cart.stream()
-                .filter(item -> item.barcode() == barcode)
-                .findFirst();
+        return Optional.ofNullable(cart.get(barcode));
     }
 
     private void updateItemQuantity(Item itemFormCart, int additionalQuantity) {
@@ -37,33 +54,89 @@ public class ShoppingCart {
                 itemFormCart.price(),
                 itemFormCart.discount(),
                 itemFormCart.quantity() + additionalQuantity);
-        cart.remove(itemFormCart);
-        cart.add(updatedItem);
+        subtractFromTotal(itemFormCart);
+        cart.put(updatedItem.barcode(), updatedItem);
+        addToTotal(updatedItem);
+        reprice(updatedItem.barcode());
     }
 
     public void removeItem(Item item) {
         if (item == null) {
             return;
         }
-        cart.removeIf(i -> i.barcode() == item.barcode());
+        Item removed = cart.remove(item.barcode());
+        if (removed != null) {
+            subtractFromTotal(removed);
+            reprice(removed.barcode());
+        }
     }
 
+    // Med kampanjer dras deras rabatter och eventuell korgrabatt av
     public BigDecimal getItemTotal() {
-        return cart.stream()
-                .map(this :: calculateItemTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (lineScales.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        // Efter borttagningar kan summan ha större skala än raderna, normaliseras en gång och sparas
+        int scale = lineScales.lastKey();
+        if (total.scale() != scale) {
+            total = total.setScale(scale);
+        }
+        if (pricingRules == null) {
+            return total;
+        }
+        BigDecimal afterPromotions = total.subtract(promotionDiscount);
+        BigDecimal cartDiscountRate = pricingRules.cartDiscountRate(afterPromotions);
+        return cartDiscountRate.signum() == 0
+                ? afterPromotions
+                : afterPromotions.subtract(afterPromotions.multiply(cartDiscountRate));
+    }
+
+    // Summan av flerköps- och paketrabatter, utan korgrabatt
+    public BigDecimal getPromotionDiscount() {
+        return promotionDiscount;
+    }
+
+    private void reprice(int barcode) {
+        if (pricingRules == null) {
+            return;
+        }
+        PricingRules.LineRule rule = pricingRules.ruleFor(barcode);
+        if (rule == null) {
+            return;
+        }
+        BigDecimal previous = ruleDiscounts[rule.index];
+        BigDecimal current = rule.discount(cart);
+        if (previous != null) {
+            promotionDiscount = promotionDiscount.subtract(previous);
+        }
+        promotionDiscount = promotionDiscount.add(current);
+        ruleDiscounts[rule.index] = current;
+    }
+
+    private void addToTotal(Item item) {
+        BigDecimal itemTotal = calculateItemTotal(item);
+        total = total.add(itemTotal);
+        lineScales.merge(itemTotal.scale(), 1, Integer::sum);
+    }
+
+    private void subtractFromTotal(Item item) {
+        BigDecimal itemTotal = calculateItemTotal(item);
+        lineScales.computeIfPresent(itemTotal.scale(), (scale, count) -> count == 1 ? null : count - 1);
+        total = lineScales.isEmpty() ? BigDecimal.ZERO : total.subtract(itemTotal);
     }
 
     private BigDecimal calculateItemTotal(Item item) {
         BigDecimal itemTotal = item.price().multiply(BigDecimal.valueOf(item.quantity()));
         if (item.discount() > 0) {
-           BigDecimal discountAmount = itemTotal.multiply(BigDecimal.valueOf((double) item.discount()/100));
+           // Exakt procentsats, t.ex. 25 -> 0.25, utan att gå via double
+           BigDecimal discountRate = BigDecimal.valueOf(item.discount(), 2).stripTrailingZeros();
+           BigDecimal discountAmount = itemTotal.multiply(discountRate);
            itemTotal = itemTotal.subtract(discountAmount);
         }
         return itemTotal;
     }
 
     public List<Item> getCart() {
-        return new ArrayList<>(cart);
+        return cart.values();
     }
 }
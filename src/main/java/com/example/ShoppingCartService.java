@@ -0,0 +1,279 @@
+package com.example;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Varukorgar för många samtidiga sessioner. Varje korg låses för sig, så sessioner väntar
+// aldrig på varandra. Korgar som inte använts på idleTtl tas bort. Med en katalog för kalla
+// korgar skrivs de i stället till disk efter spillAfter och läses in igen vid nästa anrop,
+// tills idleTtl har gått, även efter en omstart. Vad som är inaktivt avgör TimeProvider.
+public class ShoppingCartService implements AutoCloseable {
+    private static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+    private final TimeProvider timeProvider;
+    private final Duration idleTtl;
+    private final Duration spillAfter;
+    private final CartSpillStore spillStore;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    // Senaste användning för korgar som ligger på disk
+    private final ConcurrentHashMap<String, LocalDateTime> spilled = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+    private final AtomicLong failedSpills = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+
+    public static ShoppingCartService start(TimeProvider timeProvider, Duration idleTtl) {
+        return start(timeProvider, idleTtl, null, null, DEFAULT_SWEEP_INTERVAL);
+    }
+
+    public static ShoppingCartService start(TimeProvider timeProvider, Duration idleTtl, Duration spillAfter, Path spillDirectory) {
+        return start(timeProvider, idleTtl, spillAfter, spillDirectory, DEFAULT_SWEEP_INTERVAL);
+    }
+
+    // spillDirectory null betyder att inaktiva korgar bara tas bort. Korgarna hamnar i en
+    // underkatalog som tjänsten äger och som inte ska delas med en annan körande tjänst.
+    // Städningen schemaläggs först när objektet är färdigbyggt.
+    public static ShoppingCartService start(TimeProvider timeProvider,
+                                            Duration idleTtl,
+                                            Duration spillAfter,
+                                            Path spillDirectory,
+                                            Duration sweepInterval) {
+        ShoppingCartService service = new ShoppingCartService(timeProvider, idleTtl, spillAfter, spillDirectory, sweepInterval);
+        service.scheduler.scheduleWithFixedDelay(service::sweepSafely,
+                sweepInterval.toMillis(), sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return service;
+    }
+
+    private ShoppingCartService(TimeProvider timeProvider,
+                                Duration idleTtl,
+                                Duration spillAfter,
+                                Path spillDirectory,
+                                Duration sweepInterval) {
+        if (idleTtl == null || idleTtl.isNegative() || idleTtl.isZero()) {
+            throw new IllegalArgumentException("Tiden innan inaktiva varukorgar tas bort måste vara positiv");
+        }
+        if (spillDirectory != null && (spillAfter == null || spillAfter.isNegative() || spillAfter.compareTo(idleTtl) >= 0)) {
+            throw new IllegalArgumentException("Tiden innan varukorgar skrivs till disk måste vara kortare än tiden innan de tas bort");
+        }
+        if (sweepInterval == null || sweepInterval.isNegative() || sweepInterval.isZero()) {
+            throw new IllegalArgumentException("Intervallet för städning måste vara positivt");
+        }
+        this.timeProvider = timeProvider;
+        this.idleTtl = idleTtl;
+        this.spillAfter = spillDirectory != null ? spillAfter : idleTtl;
+        this.spillStore = spillDirectory != null ? new CartSpillStore(spillDirectory) : null;
+        if (spillStore != null) {
+            // Korgar kvar från en tidigare körning räknas som använda nu
+            LocalDateTime now = timeProvider.getCurrentTime();
+            spillStore.sessionIds().forEach(sessionId -> spilled.put(sessionId, now));
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addItem(String sessionId, Item item) {
+        withCart(sessionId, true, cart -> {
+            cart.addItem(item);
+            return null;
+        }, null);
+    }
+
+    public void removeItem(String sessionId, Item item) {
+        withCart(sessionId, false, cart -> {
+            cart.removeItem(item);
+            return null;
+        }, null);
+    }
+
+    public BigDecimal getItemTotal(String sessionId) {
+        return withCart(sessionId, false, ShoppingCart::getItemTotal, BigDecimal.ZERO);
+    }
+
+    // Kopia av raderna, tom lista om sessionen saknar varukorg
+    public List<Item> getItems(String sessionId) {
+        return withCart(sessionId, false, cart -> List.copyOf(cart.getCart()), List.of());
+    }
+
+    // T.ex. vid utcheckning eller utloggning
+    public void removeCart(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            synchronized (session) {
+                session.removed = true;
+            }
+        }
+        if (spillStore != null && spilled.remove(sessionId) != null) {
+            spillStore.delete(sessionId);
+        }
+    }
+
+    // Skriver kalla korgar till disk och tar bort korgar som varit inaktiva för länge.
+    // Returnerar antalet korgar som lämnade minnet.
+    public int evictIdleCarts() {
+        LocalDateTime now = timeProvider.getCurrentTime();
+        LocalDateTime spillBefore = now.minus(spillAfter);
+        LocalDateTime expireBefore = now.minus(idleTtl);
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (evict(entry.getKey(), entry.getValue(), spillBefore, expireBefore)) {
+                evicted++;
+            }
+        }
+        if (spillStore != null) {
+            for (Map.Entry<String, LocalDateTime> entry : spilled.entrySet()) {
+                // remove(key, value) misslyckas om korgen just lästs in igen
+                if (entry.getValue().isAfter(expireBefore) || !spilled.remove(entry.getKey(), entry.getValue())) {
+                    continue;
+                }
+                spillStore.delete(entry.getKey());
+                expired.incrementAndGet();
+            }
+        }
+        return evicted;
+    }
+
+    // Korgar i minnet
+    public int getCartCount() {
+        return sessions.size();
+    }
+
+    // Korgar som just nu ligger på disk
+    public int getSpilledCartCount() {
+        return spilled.size();
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public long getSpillCount() {
+        return spills.get();
+    }
+
+    public long getRestoreCount() {
+        return restores.get();
+    }
+
+    public long getFailedSpillCount() {
+        return failedSpills.get();
+    }
+
+    public long getFailedRunCount() {
+        return failedRuns.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // En korg som städas bort medan anroparen väntar på dess lås markeras, då hämtas den på nytt
+    // från kartan eller disken så att ändringen inte hamnar i en korg ingen längre ser
+    private <T> T withCart(String sessionId, boolean create, Function<ShoppingCart, T> action, T missing) {
+        if (sessionId == null) {
+            throw new IllegalArgumentException("Sessions-id saknas");
+        }
+        while (true) {
+            Session session = sessions.get(sessionId);
+            if (session == null) {
+                if (!create && !spilled.containsKey(sessionId)) {
+                    return missing;
+                }
+                // Läsningen från disk sker under kartans lås för just den nyckeln, inte hela kartan
+                session = sessions.computeIfAbsent(sessionId, this::restoreOrCreate);
+            }
+            synchronized (session) {
+                if (session.removed) {
+                    continue;
+                }
+                session.lastAccess = timeProvider.getCurrentTime();
+                return action.apply(session.cart);
+            }
+        }
+    }
+
+    // Korgen lämnar disken först när den lästs in. Misslyckas läsningen ligger den kvar där
+    // och anroparen får felet, så ett senare anrop kan försöka igen.
+    private Session restoreOrCreate(String sessionId) {
+        ShoppingCart cart = new ShoppingCart();
+        if (spillStore != null && spilled.containsKey(sessionId)) {
+            List<Item> items = spillStore.read(sessionId);
+            if (items != null) {
+                items.forEach(cart::addItem);
+                spillStore.delete(sessionId);
+                restores.incrementAndGet();
+            }
+            spilled.remove(sessionId);
+        }
+        return new Session(cart, timeProvider.getCurrentTime());
+    }
+
+    private boolean evict(String sessionId, Session session, LocalDateTime spillBefore, LocalDateTime expireBefore) {
+        synchronized (session) {
+            if (session.removed || session.lastAccess.isAfter(spillBefore)) {
+                return false;
+            }
+            boolean expire = spillStore == null || !session.lastAccess.isAfter(expireBefore)
+                    || session.cart.getCart().isEmpty();
+            if (!expire) {
+                try {
+                    spillStore.write(sessionId, session.cart.getCart());
+                } catch (UncheckedIOException e) {
+                    // Korgen stannar i minnet och försöks igen nästa varv
+                    failedSpills.incrementAndGet();
+                    return false;
+                }
+                spilled.put(sessionId, session.lastAccess);
+                spills.incrementAndGet();
+            } else {
+                expired.incrementAndGet();
+            }
+            session.removed = true;
+            sessions.remove(sessionId, session);
+            return true;
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            evictIdleCarts();
+        } catch (RuntimeException e) {
+            // Ett misslyckat varv får inte stoppa schemaläggningen, nästa varv försöker igen
+            failedRuns.incrementAndGet();
+        }
+    }
+
+    private static final class Session {
+        private final ShoppingCart cart;
+        private LocalDateTime lastAccess;
+        // Satt när korgen lämnat kartan
+        private boolean removed;
+
+        private Session(ShoppingCart cart, LocalDateTime lastAccess) {
+            this.cart = cart;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Mäter tiden för varje repositoryanrop åt BookingMetricsListener. För streamAll mäts bara
+// anropet som skapar strömmen, inte läsningen av den.
+final class TimedRoomRepository implements RoomRepository {
+    private final RoomRepository delegate;
+    private final BookingMetricsListener metrics;
+
+    TimedRoomRepository(RoomRepository delegate, BookingMetricsListener metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            read(start);
+        }
+    }
+
+    @Override
+    public List<Room> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            read(start);
+        }
+    }
+
+    @Override
+    public Stream<Room> streamAll(String afterRoomId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.streamAll(afterRoomId);
+        } finally {
+            read(start);
+        }
+    }
+
+    @Override
+    public Optional<Room> findByBookingId(String bookingId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByBookingId(bookingId);
+        } finally {
+            read(start);
+        }
+    }
+
+    @Override
+    public void save(Room room) {
+        long start = System.nanoTime();
+        try {
+            delegate.save(room);
+        } finally {
+            written(start);
+        }
+    }
+
+    @Override
+    public void addBooking(Room room, Booking booking) {
+        long start = System.nanoTime();
+        try {
+            delegate.addBooking(room, booking);
+        } finally {
+            written(start);
+        }
+    }
+
+    @Override
+    public void addBookings(Room room, List<Booking> bookings) {
+        long start = System.nanoTime();
+        try {
+            delegate.addBookings(room, bookings);
+        } finally {
+            written(start);
+        }
+    }
+
+    @Override
+    public void removeBooking(Room room, String bookingId) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeBooking(room, bookingId);
+        } finally {
+            written(start);
+        }
+    }
+
+    @Override
+    public void removeBookings(Room room, List<String> bookingIds) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeBookings(room, bookingIds);
+        } finally {
+            written(start);
+        }
+    }
+
+    @Override
+    public void addRecurringBooking(Room room, RecurringBooking recurringBooking) {
+        long start = System.nanoTime();
+        try {
+            delegate.addRecurringBooking(room, recurringBooking);
+        } finally {
+            written(start);
+        }
+    }
+
+    @Override
+    public void removeRecurringBooking(Room room, String recurringBookingId) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeRecurringBooking(room, recurringBookingId);
+        } finally {
+            written(start);
+        }
+    }
+
+    private void read(long start) {
+        metrics.operationCompleted(BookingMetricsListener.Operation.REPOSITORY_READ, System.nanoTime() - start);
+    }
+
+    private void written(long start) {
+        metrics.operationCompleted(BookingMetricsListener.Operation.REPOSITORY_WRITE, System.nanoTime() - start);
+    }
+}
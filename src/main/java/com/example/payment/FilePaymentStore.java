@@ -0,0 +1,152 @@
+package com.example.payment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+// Inbäddat betalningsregister i en fil. Varje saveAll blir en post med kontrollsumma och en
+// enda fsync, så en batch kostar lika mycket disk-synk som en enskild betalning. Posterna läses
+// in vid start och en avbruten skrivning i slutet kapas.
+public class FilePaymentStore implements PaymentStore, AutoCloseable {
+    private static final String LOG_FILE = "payments.log";
+
+    private final FileChannel channel;
+    private final Map<String, PaymentRecord> records = new ConcurrentHashMap<>();
+    private long batchCount;
+
+    public FilePaymentStore(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte öppna betalningsregistret i " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveAll(List<PaymentRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            out.writeInt(batch.size());
+            for (PaymentRecord record : batch) {
+                out.writeUTF(record.paymentId());
+                out.writeUTF(record.amount().toPlainString());
+                out.writeByte(record.status().ordinal());
+                out.writeUTF(record.transactionId() == null ? "" : record.transactionId());
+                out.writeLong(record.createdAt().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(record.createdAt().getNano());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte serialisera betalningar", e);
+        }
+        byte[] payload = raw.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+        try {
+            long position = channel.size();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte skriva till betalningsregistret", e);
+        }
+        for (PaymentRecord record : batch) {
+            records.put(record.paymentId(), record);
+        }
+        batchCount++;
+    }
+
+    @Override
+    public Optional<PaymentRecord> findById(String paymentId) {
+        return Optional.ofNullable(records.get(paymentId));
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    // Antal skrivningar med fsync sedan start
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunde inte stänga betalningsregistret", e);
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        while (position + 8 <= size) {
+            ByteBuffer header = readAt(position, 8);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + 8 + length > size) {
+                break;
+            }
+            byte[] payload = readAt(position + 8, length).array();
+            if (checksum(payload) != checksum) {
+                break;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String paymentId = in.readUTF();
+                    BigDecimal amount = new BigDecimal(in.readUTF());
+                    PaymentStatus status = PaymentStatus.values()[in.readByte()];
+                    String transactionId = in.readUTF();
+                    LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+                    records.put(paymentId, new PaymentRecord(paymentId, amount, status,
+                            transactionId.isEmpty() ? null : transactionId, createdAt));
+                }
+            }
+            position += 8 + length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Oväntat slut på betalningsregistret");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
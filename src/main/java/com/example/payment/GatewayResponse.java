@@ -0,0 +1,5 @@
+package com.example.payment;
+
+// transactionId är satt endast när betalningen gick igenom
+public record GatewayResponse(boolean success, String transactionId) {
+}
@@ -0,0 +1,147 @@
+package com.example.payment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Samlar poster från många samtidiga betalningar och skriver dem med ett saveAll per batch.
+// Medan en batch skrivs fylls kön på, så batcherna växer av sig själva när lasten ökar.
+// En plats i kön reserveras innan kunden debiteras, så en genomförd debitering har alltid
+// plats. En misslyckad skrivning görs om tills den lyckas eller skrivaren stängs.
+final class GroupCommitWriter implements AutoCloseable {
+    private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(1);
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5_000;
+
+    private final PaymentStore store;
+    private final int capacity;
+    // En tillgänglig plats per post som ännu inte reserverats
+    private final Semaphore slots;
+    // Begränsas av slots
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final int maxBatchSize;
+    private final long retryBackoffMillis;
+    private final Thread worker;
+    private volatile boolean closed;
+    // Sätts om stängningen inte hann vänta in allt, då ger arbetaren upp
+    private volatile boolean abandoned;
+    private final AtomicLong retries = new AtomicLong();
+
+    static GroupCommitWriter start(PaymentStore store, int capacity, int maxBatchSize, Duration retryBackoff) {
+        GroupCommitWriter writer = new GroupCommitWriter(store, capacity, maxBatchSize, retryBackoff);
+        writer.worker.start();
+        return writer;
+    }
+
+    private GroupCommitWriter(PaymentStore store, int capacity, int maxBatchSize, Duration retryBackoff) {
+        this.store = store;
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.retryBackoffMillis = Math.max(1, retryBackoff.toMillis());
+        this.worker = Thread.ofPlatform().name("payment-writer").daemon().unstarted(this::drainQueue);
+    }
+
+    // Reserverar plats för en post. false om kön är full eller stängd, och då ska kunden inte debiteras.
+    boolean reserve() {
+        if (closed) {
+            return false;
+        }
+        return slots.tryAcquire();
+    }
+
+    // Kräver en reserverad plats. Slutförs när posten är sparad.
+    CompletableFuture<PaymentRecord> write(PaymentRecord record) {
+        Pending pending = new Pending(record, new CompletableFuture<>());
+        queue.add(pending);
+        // Arbetaren har gett upp och tömmer inte kön längre
+        if (abandoned && queue.remove(pending)) {
+            failAll(List.of(pending));
+        }
+        return pending.written;
+    }
+
+    // Antal gånger en batch fått skrivas om
+    long getRetryCount() {
+        return retries.get();
+    }
+
+    // Väntar tills alla reserverade platser är skrivna, även betalningar som fortfarande väntar
+    // på betaltjänsten. Det som inte hunnit skrivas när tiden gått ut slutförs med fel.
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join(CLOSE_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            abandoned = true;
+            worker.interrupt();
+        }
+    }
+
+    private void drainQueue() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        List<PaymentRecord> records = new ArrayList<>(maxBatchSize);
+        try {
+            while (!abandoned && (!closed || slots.availablePermits() < capacity)) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                for (Pending pending : batch) {
+                    records.add(pending.record);
+                }
+                commit(batch, records);
+                batch.clear();
+                records.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(batch);
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        failAll(remaining);
+    }
+
+    private void commit(List<Pending> batch, List<PaymentRecord> records) throws InterruptedException {
+        long backoff = retryBackoffMillis;
+        while (true) {
+            try {
+                store.saveAll(records);
+                break;
+            } catch (RuntimeException e) {
+                // Kunden kan redan vara debiterad, posten får inte tappas
+                retries.incrementAndGet();
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+            }
+        }
+        for (Pending pending : batch) {
+            slots.release();
+            pending.written.complete(pending.record);
+        }
+        batch.clear();
+    }
+
+    private void failAll(List<Pending> pending) {
+        for (Pending entry : pending) {
+            slots.release();
+            entry.written.completeExceptionally(
+                    new IllegalStateException("Betalningen " + entry.record.paymentId() + " hann inte sparas innan skrivaren stängdes"));
+        }
+    }
+
+    private record Pending(PaymentRecord record, CompletableFuture<PaymentRecord> written) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.payment;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Kommer ihåg betalningar per idempotensnyckel en begränsad tid. Ett upprepat anrop får
+// samma framtid som det första, även medan betalningen fortfarande pågår. Insättningsordnad,
+// så de äldsta nycklarna ligger först både när de går ut och när cachen är full. En full
+// cache tränger bara undan avslutade betalningar med känt utfall. Obesvarade betalningar
+// (UNKNOWN) ligger kvar tills de går ut, så att samma nyckel inte kan debitera igen innan
+// de stämts av. Finns inget att tränga undan avvisas nya nycklar.
+final class IdempotencyCache {
+    private final int capacity;
+    private final Duration ttl;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private long hits;
+
+    IdempotencyCache(int capacity, Duration ttl) {
+        this.capacity = capacity;
+        this.ttl = ttl;
+    }
+
+    // Startar betalningen bara om nyckeln saknas, annars returneras den befintliga framtiden.
+    // Nyckeln reserveras under låset, men start anropas utanför det.
+    CompletableFuture<PaymentRecord> getOrStart(String key, BigDecimal amount, LocalDateTime now,
+                                                Supplier<CompletableFuture<PaymentRecord>> start) {
+        CompletableFuture<PaymentRecord> payment = new CompletableFuture<>();
+        synchronized (this) {
+            removeExpired(now);
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                if (existing.amount.compareTo(amount) != 0) {
+                    throw new IllegalArgumentException("Idempotensnyckeln används redan för ett annat belopp");
+                }
+                hits++;
+                return existing.payment;
+            }
+            if (entries.size() >= capacity && !evictEldestCompleted()) {
+                throw new PaymentRejectedException("För många pågående betalningar med idempotensnyckel");
+            }
+            entries.put(key, new Entry(amount, payment, now.plus(ttl)));
+        }
+
+        CompletableFuture<PaymentRecord> started;
+        try {
+            started = start.get();
+        } catch (RuntimeException e) {
+            remove(key, payment);
+            payment.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((record, error) -> {
+            if (error == null) {
+                payment.complete(record);
+                return;
+            }
+            // Bara en betalning som aldrig nådde betaltjänsten glöms och kan försökas igen. Glöms
+            // innan framtiden slutförs, så att ett omförsök som ser felet startar en ny.
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof PaymentRejectedException) {
+                remove(key, payment);
+            }
+            payment.completeExceptionally(cause);
+        });
+        return payment;
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void remove(String key, CompletableFuture<PaymentRecord> payment) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.payment == payment) {
+            entries.remove(key);
+        }
+    }
+
+    private boolean evictEldestCompleted() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isSettled()) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeExpired(LocalDateTime now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expiresAt.isAfter(now)) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private record Entry(BigDecimal amount, CompletableFuture<PaymentRecord> payment, LocalDateTime expiresAt) {
+
+        // Avslutad, och inte en betalning där det är okänt om kunden debiterats
+        private boolean isSettled() {
+            return switch (payment.state()) {
+                case SUCCESS -> payment.resultNow() == null || payment.resultNow().status() != PaymentStatus.UNKNOWN;
+                case FAILED, CANCELLED -> true;
+                case RUNNING -> false;
+            };
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.payment;
+
+import java.math.BigDecimal;
+
+public interface PaymentConfirmationSender {
+    void sendPaymentConfirmation(String email, BigDecimal amount);
+}
@@ -0,0 +1,10 @@
+package com.example.payment;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+// Extern betaltjänst. Implementationer ska inte blockera anroparen utan slutföra framtiden
+// när svaret kommer, och håller själva sina nycklar.
+public interface PaymentGateway {
+    CompletableFuture<GatewayResponse> charge(String paymentId, BigDecimal amount);
+}
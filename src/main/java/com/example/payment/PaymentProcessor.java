@@ -1,23 +1,282 @@
 package com.example.payment;
 
-//public class PaymentProcessor {
-//    private static final String API_KEY = "sk_test_123456";
-//
-//    public boolean processPayment(double amount) {
-//        // Anropar extern betaltjänst direkt med statisk API-nyckel
-//        PaymentApiResponse response = PaymentApi.charge(API_KEY, amount);
-//
-//        // Skriver till databas direkt
-//        if (response.isSuccess()) {
-//            DatabaseConnection.getInstance()
-//                    .executeUpdate("INSERT INTO payments (amount, status) VALUES (" + amount + ", 'SUCCESS')");
-//        }
-//
-//        // Skickar e-post direkt
-//        if (response.isSuccess()) {
-//            EmailService.sendPaymentConfirmation("user@example.com", amount);
-//        }
-//
-//        return response.isSuccess();
-//    }
-//}
+import com.example.TimeProvider;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tar betalt via en utbytbar betaltjänst utan att blockera anroparen. Svaret sparas i
+// registret via en gemensam skrivare som samlar samtidiga betalningar i batcher, och
+// bekräftelser läggs på en begränsad kö som töms i bakgrunden. Hur många betalningar som
+// kan vara igång samtidigt begränsas alltså inte av den långsammaste tjänsten, utan av
+// skrivkön. En betalning får en plats där innan betaltjänsten anropas, och är kön full
+// avvisas betalningen utan att kunden debiteras.
+public class PaymentProcessor implements AutoCloseable {
+    private static final Duration DEFAULT_GATEWAY_TIMEOUT = Duration.ofSeconds(10);
+    private static final int DEFAULT_WRITE_CAPACITY = 10_000;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int DEFAULT_CONFIRMATION_CAPACITY = 10_000;
+    private static final int DEFAULT_CONFIRMATION_WORKERS = 4;
+    private static final int DEFAULT_IDEMPOTENCY_CAPACITY = 100_000;
+    private static final Duration DEFAULT_IDEMPOTENCY_TTL = Duration.ofHours(24);
+    private static final Duration WRITE_RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final PaymentGateway gateway;
+    private final TimeProvider timeProvider;
+    private final Duration gatewayTimeout;
+    private final GroupCommitWriter writer;
+    private final PaymentConfirmationSender confirmationSender;
+    private final BlockingQueue<Confirmation> confirmations;
+    private final ExecutorService confirmationWorkers;
+    private final IdempotencyCache idempotencyCache;
+    private volatile boolean closed;
+    // Sätts först när skrivaren är stängd, så att dess sista bekräftelser också skickas
+    private volatile boolean confirmationsClosed;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong unknown = new AtomicLong();
+    private final AtomicLong confirmationsSent = new AtomicLong();
+    private final AtomicLong confirmationsFailed = new AtomicLong();
+    private final AtomicLong confirmationsDropped = new AtomicLong();
+
+    public static PaymentProcessor start(PaymentGateway gateway,
+                                         PaymentStore store,
+                                         PaymentConfirmationSender confirmationSender,
+                                         TimeProvider timeProvider) {
+        return start(gateway, store, confirmationSender, timeProvider, DEFAULT_GATEWAY_TIMEOUT,
+                DEFAULT_WRITE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_CONFIRMATION_CAPACITY, DEFAULT_CONFIRMATION_WORKERS);
+    }
+
+    public static PaymentProcessor start(PaymentGateway gateway,
+                                         PaymentStore store,
+                                         PaymentConfirmationSender confirmationSender,
+                                         TimeProvider timeProvider,
+                                         Duration gatewayTimeout,
+                                         int writeCapacity,
+                                         int batchSize,
+                                         int confirmationCapacity,
+                                         int confirmationWorkerCount) {
+        return start(gateway, store, confirmationSender, timeProvider, gatewayTimeout, writeCapacity, batchSize,
+                confirmationCapacity, confirmationWorkerCount, DEFAULT_IDEMPOTENCY_CAPACITY, DEFAULT_IDEMPOTENCY_TTL);
+    }
+
+    // idempotencyTtl är hur länge en nyckel sparas, och bör vara längre än klienternas
+    // längsta tid mellan omförsök. Arbetarna startas först när objektet är färdigbyggt.
+    public static PaymentProcessor start(PaymentGateway gateway,
+                                         PaymentStore store,
+                                         PaymentConfirmationSender confirmationSender,
+                                         TimeProvider timeProvider,
+                                         Duration gatewayTimeout,
+                                         int writeCapacity,
+                                         int batchSize,
+                                         int confirmationCapacity,
+                                         int confirmationWorkerCount,
+                                         int idempotencyCapacity,
+                                         Duration idempotencyTtl) {
+        PaymentProcessor processor = new PaymentProcessor(gateway, store, confirmationSender, timeProvider, gatewayTimeout,
+                writeCapacity, batchSize, confirmationCapacity, confirmationWorkerCount, idempotencyCapacity, idempotencyTtl);
+        for (int i = 0; i < confirmationWorkerCount; i++) {
+            processor.confirmationWorkers.execute(processor::drainConfirmations);
+        }
+        return processor;
+    }
+
+    private PaymentProcessor(PaymentGateway gateway,
+                             PaymentStore store,
+                             PaymentConfirmationSender confirmationSender,
+                             TimeProvider timeProvider,
+                             Duration gatewayTimeout,
+                             int writeCapacity,
+                             int batchSize,
+                             int confirmationCapacity,
+                             int confirmationWorkerCount,
+                             int idempotencyCapacity,
+                             Duration idempotencyTtl) {
+        if (writeCapacity <= 0 || batchSize <= 0 || confirmationCapacity <= 0 || confirmationWorkerCount <= 0
+                || idempotencyCapacity <= 0) {
+            throw new IllegalArgumentException("Kapacitet, batchstorlek och antal arbetare måste vara positiva");
+        }
+        this.gateway = gateway;
+        this.timeProvider = timeProvider;
+        this.gatewayTimeout = gatewayTimeout;
+        this.writer = GroupCommitWriter.start(store, writeCapacity, batchSize, WRITE_RETRY_BACKOFF);
+        this.confirmationSender = confirmationSender;
+        this.confirmations = new ArrayBlockingQueue<>(confirmationCapacity);
+        this.confirmationWorkers = Executors.newVirtualThreadPerTaskExecutor();
+        this.idempotencyCache = new IdempotencyCache(idempotencyCapacity, idempotencyTtl);
+    }
+
+    // Slutförs med den sparade posten. Nekade, misslyckade och obesvarade betalningar sparas
+    // också men får ingen bekräftelse. Framtiden slutförs med fel om skrivkön är full, då har kunden
+    // inte debiterats, eller om posten inte hann sparas innan hanteraren stängdes.
+    public CompletableFuture<PaymentRecord> processPayment(BigDecimal amount, String email) {
+        validate(amount, email);
+        return charge(UUID.randomUUID().toString(), amount, email);
+    }
+
+    // Som processPayment, men ett omförsök med samma nyckel debiterar inte kunden igen. Det får
+    // samma framtid som första anropet, även om det fortfarande väntar på betaltjänsten.
+    // Nyckeln blir betalningens id hos betaltjänsten, så även den kan känna igen omförsök.
+    // Även nekade, misslyckade och obesvarade betalningar ligger kvar, så att ett svar som
+    // dröjt förbi tidsgränsen inte leder till en andra debitering. Bara en betalning som avvisades innan
+    // betaltjänsten anropades glöms och kan försökas igen.
+    public CompletableFuture<PaymentRecord> processPayment(String idempotencyKey, BigDecimal amount, String email) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotensnyckel saknas");
+        }
+        validate(amount, email);
+        return idempotencyCache.getOrStart(idempotencyKey, amount, timeProvider.getCurrentTime(),
+                () -> charge(idempotencyKey, amount, email));
+    }
+
+    // Antal anrop som fick en tidigare betalnings framtid i stället för en ny debitering
+    public long getDeduplicatedCount() {
+        return idempotencyCache.getHitCount();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.get();
+    }
+
+    public long getDeclinedCount() {
+        return declined.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    // Betalningar där betaltjänsten inte svarade i tid och som måste stämmas av
+    public long getUnknownCount() {
+        return unknown.get();
+    }
+
+    public long getConfirmationSentCount() {
+        return confirmationsSent.get();
+    }
+
+    public long getConfirmationFailedCount() {
+        return confirmationsFailed.get();
+    }
+
+    public long getConfirmationDroppedCount() {
+        return confirmationsDropped.get();
+    }
+
+    // Antal gånger en batch poster fått skrivas om efter fel från registret
+    public long getWriteRetryCount() {
+        return writer.getRetryCount();
+    }
+
+    // Slutar ta emot nya betalningar och väntar tills poster och bekräftelser är hanterade,
+    // även för betalningar som fortfarande väntar på betaltjänsten
+    @Override
+    public void close() {
+        closed = true;
+        writer.close();
+        confirmationsClosed = true;
+        confirmationWorkers.shutdown();
+        try {
+            confirmationWorkers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void validate(BigDecimal amount, String email) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Beloppet måste vara positivt");
+        }
+        if (email == null) {
+            throw new IllegalArgumentException("E-postadress saknas");
+        }
+        if (closed) {
+            throw new IllegalStateException("Betalningshanteraren är stängd");
+        }
+    }
+
+    private CompletableFuture<PaymentRecord> charge(String paymentId, BigDecimal amount, String email) {
+        if (!writer.reserve()) {
+            return CompletableFuture.failedFuture(new PaymentRejectedException("Skrivkön för betalningar är full eller stängd"));
+        }
+        CompletableFuture<GatewayResponse> answer;
+        try {
+            answer = gateway.charge(paymentId, amount);
+        } catch (RuntimeException e) {
+            // Platsen är reserverad, så även detta sparas som en misslyckad betalning
+            answer = CompletableFuture.failedFuture(e);
+        }
+        return answer
+                .orTimeout(gatewayTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                .handle((response, error) -> toRecord(paymentId, amount, response, error))
+                .thenCompose(writer::write)
+                .thenApply(record -> {
+                    if (record.status() == PaymentStatus.SUCCESS) {
+                        publishConfirmation(new Confirmation(email, amount));
+                    }
+                    return record;
+                });
+    }
+
+    private PaymentRecord toRecord(String paymentId, BigDecimal amount, GatewayResponse response, Throwable error) {
+        PaymentStatus status;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            // Debiteringen kan ha gått igenom även om svaret inte kom
+            status = PaymentStatus.UNKNOWN;
+            unknown.incrementAndGet();
+        } else if (cause != null) {
+            status = PaymentStatus.FAILED;
+            failed.incrementAndGet();
+        } else if (response.success()) {
+            status = PaymentStatus.SUCCESS;
+            succeeded.incrementAndGet();
+        } else {
+            status = PaymentStatus.DECLINED;
+            declined.incrementAndGet();
+        }
+        String transactionId = status == PaymentStatus.SUCCESS ? response.transactionId() : null;
+        return new PaymentRecord(paymentId, amount, status, transactionId, timeProvider.getCurrentTime());
+    }
+
+    // Betalningen är redan genomförd och sparad, en full kö får inte göra den misslyckad
+    private void publishConfirmation(Confirmation confirmation) {
+        if (!confirmations.offer(confirmation)) {
+            confirmationsDropped.incrementAndGet();
+        }
+    }
+
+    private void drainConfirmations() {
+        try {
+            while (!confirmationsClosed || !confirmations.isEmpty()) {
+                Confirmation confirmation = confirmations.poll(100, TimeUnit.MILLISECONDS);
+                if (confirmation == null) {
+                    continue;
+                }
+                try {
+                    confirmationSender.sendPaymentConfirmation(confirmation.email(), confirmation.amount());
+                    confirmationsSent.incrementAndGet();
+                } catch (RuntimeException e) {
+                    confirmationsFailed.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Confirmation(String email, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// transactionId är null om betalningen inte gick igenom
+public record PaymentRecord(String paymentId, BigDecimal amount, PaymentStatus status, String transactionId,
+                            LocalDateTime createdAt) {
+}
@@ -0,0 +1,11 @@
+package com.example.payment;
+
+// Betalningen avvisades innan betaltjänsten anropades, kunden är alltså inte debiterad
+// och samma betalning kan försökas igen
+public class PaymentRejectedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public PaymentRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.payment;
+
+public enum PaymentStatus {
+    SUCCESS,
+    DECLINED,
+    // Betaltjänsten gav fel, kunden har inte debiterats av oss
+    FAILED,
+    // Inget svar inom tidsgränsen, så kunden kan ha debiterats. Sparas för avstämning mot
+    // betaltjänsten och ska inte försökas igen med en ny betalning.
+    UNKNOWN
+}
@@ -0,0 +1,11 @@
+package com.example.payment;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface PaymentStore {
+    // Sparar alla poster i en skrivning, t.ex. en batch med förberedda satser i en transaktion
+    void saveAll(List<PaymentRecord> records);
+
+    Optional<PaymentRecord> findById(String paymentId);
+}
@@ -0,0 +1,34 @@
+package com.example.payment;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lokal betaltjänst för tester och utveckling. Svarar efter en fast fördröjning utan att
+// någon tråd väntar, och nekar belopp över en gräns.
+public class StubPaymentGateway implements PaymentGateway {
+    private final Executor delayed;
+    private final BigDecimal declineAbove;
+    private final AtomicLong charges = new AtomicLong();
+
+    public StubPaymentGateway(Duration latency, BigDecimal declineAbove) {
+        this.delayed = CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+        this.declineAbove = declineAbove;
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> charge(String paymentId, BigDecimal amount) {
+        charges.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> amount.compareTo(declineAbove) > 0
+                ? new GatewayResponse(false, null)
+                : new GatewayResponse(true, "tx-" + UUID.randomUUID()), delayed);
+    }
+
+    public long getChargeCount() {
+        return charges.get();
+    }
+}
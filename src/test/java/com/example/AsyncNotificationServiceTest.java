@@ -0,0 +1,157 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+class AsyncNotificationServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private static final Booking BOOKING = new Booking("b1", "1D", START, START.plusHours(1));
+
+    @Test
+    @DisplayName("Sending does not wait for a slow notification service")
+    void sendingReturnsBeforeDelegateFinishes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationService slow = notificationService();
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(slow).sendBookingConfirmation(BOOKING);
+
+        try (AsyncNotificationService async = AsyncNotificationService.start(slow)) {
+            async.sendBookingConfirmation(BOOKING);
+            verify(slow, timeout(1000)).sendBookingConfirmation(BOOKING);
+            assertThat(async.getSentCount()).isZero();
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Failed notifications are retried")
+    void failedNotificationIsRetried() throws Exception {
+        NotificationService flaky = notificationService();
+        doThrow(new NotificationException("Nere"))
+                .doNothing()
+                .when(flaky).sendCancellationConfirmation(BOOKING);
+
+        try (AsyncNotificationService async = AsyncNotificationService.start(flaky, 10, 1, 4, 3, Duration.ofMillis(1))) {
+            async.sendCancellationConfirmation(BOOKING);
+        }
+        verify(flaky, times(2)).sendCancellationConfirmation(BOOKING);
+    }
+
+    @Test
+    @DisplayName("Gives up after max attempts and counts the failure")
+    void givesUpAfterMaxAttempts() throws Exception {
+        NotificationService broken = notificationService();
+        doThrow(new NotificationException("Nere")).when(broken).sendBookingConfirmation(BOOKING);
+
+        AsyncNotificationService async = AsyncNotificationService.start(broken, 10, 1, 4, 3, Duration.ofMillis(1));
+        async.sendBookingConfirmation(BOOKING);
+        async.close();
+
+        verify(broken, times(3)).sendBookingConfirmation(BOOKING);
+        assertThat(async.getRetryCount()).isEqualTo(2);
+        assertThat(async.getFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Drops notifications when the queue is full")
+    void dropsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        NotificationService blocked = notificationService();
+        doAnswer(invocation -> {
+            release.await();
+            return delivered.incrementAndGet();
+        }).when(blocked).sendBookingConfirmation(any());
+
+        AsyncNotificationService async = AsyncNotificationService.start(blocked, 1, 1, 1, 1, Duration.ofMillis(1));
+        async.sendBookingConfirmation(BOOKING);
+        verify(blocked, timeout(1000)).sendBookingConfirmation(BOOKING);
+        async.sendBookingConfirmation(BOOKING);
+
+        assertThat(async.getQueueDepth()).isEqualTo(1);
+        assertThatThrownBy(() -> async.sendBookingConfirmation(BOOKING))
+                .isInstanceOf(NotificationException.class);
+        assertThat(async.getDroppedCount()).isEqualTo(1);
+
+        release.countDown();
+        async.close();
+        assertThat(delivered.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Queued notifications are sent in one call per type")
+    void queuedNotificationsAreBatched() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Booking second = new Booking("b2", "1D", START.plusHours(2), START.plusHours(3));
+        Booking third = new Booking("b3", "1D", START.plusHours(4), START.plusHours(5));
+        NotificationService batching = notificationService();
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(batching).sendBookingConfirmations(List.of(BOOKING));
+
+        AsyncNotificationService async = AsyncNotificationService.start(batching, 10, 1, 10, 1, Duration.ofMillis(1));
+        async.sendBookingConfirmation(BOOKING);
+        verify(batching, timeout(1000)).sendBookingConfirmations(List.of(BOOKING));
+        async.sendBookingConfirmation(second);
+        async.sendBookingConfirmation(third);
+        release.countDown();
+        async.close();
+
+        verify(batching).sendBookingConfirmations(List.of(second, third));
+        assertThat(async.getSentCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Waiting retry does not hold up the rest of the queue")
+    void retryDoesNotStallQueue() throws Exception {
+        Booking other = new Booking("b2", "1D", START.plusHours(2), START.plusHours(3));
+        NotificationService flaky = notificationService();
+        doThrow(new NotificationException("Nere")).when(flaky).sendBookingConfirmation(BOOKING);
+
+        AsyncNotificationService async = AsyncNotificationService.start(flaky, 10, 1, 1, 2, Duration.ofSeconds(1));
+        async.sendBookingConfirmation(BOOKING);
+        async.sendBookingConfirmation(other);
+        verify(flaky, timeout(500)).sendBookingConfirmation(other);
+        verify(flaky, times(1)).sendBookingConfirmation(BOOKING);
+
+        async.close();
+        verify(flaky, times(2)).sendBookingConfirmation(BOOKING);
+        assertThat(async.getFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A retry still waiting when close times out is counted as failed")
+    void retryLeftAtCloseIsCountedAsFailed() throws Exception {
+        NotificationService broken = notificationService();
+        doThrow(new NotificationException("Nere")).when(broken).sendBookingConfirmation(BOOKING);
+
+        AsyncNotificationService async = AsyncNotificationService.start(broken, 10, 1, 1, 3, Duration.ofMinutes(10));
+        async.sendBookingConfirmation(BOOKING);
+        verify(broken, timeout(500)).sendBookingConfirmation(BOOKING);
+        async.close(Duration.ofMillis(200));
+
+        verify(broken, times(1)).sendBookingConfirmation(BOOKING);
+        assertThat(async.getRetryCount()).isEqualTo(1);
+        assertThat(async.getFailedCount()).isEqualTo(1);
+        assertThat(async.getSentCount()).isZero();
+    }
+
+    // Batchmetoderna är standardmetoder och ska gå vidare till de enskilda som stubbas
+    private static NotificationService notificationService() {
+        return mock(NotificationService.class, CALLS_REAL_METHODS);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class AvailabilityIndexTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    private AvailabilityIndex index;
+    private Room first;
+    private Room second;
+
+    @BeforeEach
+    void setUp() {
+        index = new AvailabilityIndex(Duration.ofMinutes(15));
+        first = new Room("1", "Första");
+        second = new Room("2", "Andra");
+        index.rebuild(List.of(first, second));
+    }
+
+    @Test
+    @DisplayName("Throws exception for invalid bucket size")
+    void invalidBucketSizeThrowsException() {
+        assertThatThrownBy(() -> new AvailabilityIndex(Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AvailabilityIndex(Duration.ofMillis(1500)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Booked room is excluded from fully covered buckets")
+    void bookedRoomIsExcluded() {
+        book(first, "b1", NINE, NINE.plusHours(1));
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("Partly covered bucket falls back to exact check")
+    void partlyCoveredBucketIsCheckedExactly() {
+        book(first, "b1", NINE, NINE.plusMinutes(5));
+        assertThat(index.findAvailableRooms(NINE.plusMinutes(6), NINE.plusMinutes(14)))
+                .containsExactly(first, second);
+        assertThat(index.findAvailableRooms(NINE.plusMinutes(5), NINE.plusMinutes(14)))
+                .containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("Room becomes available again after cancellation")
+    void cancelledBookingFreesRoom() {
+        book(first, "b1", NINE, NINE.plusMinutes(5));
+        book(first, "b2", NINE.plusMinutes(10), NINE.plusMinutes(20));
+        cancel(first, "b1");
+        assertThat(index.findAvailableRooms(NINE, NINE.plusMinutes(5))).containsExactly(first, second);
+        assertThat(index.findAvailableRooms(NINE, NINE.plusMinutes(15))).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("Room is available again after its series and a booking in the same bucket are cancelled")
+    void cancelledSeriesFreesBucket() {
+        RecurringBooking series = new RecurringBooking("r1", "1", NINE, NINE.plusMinutes(5),
+                RecurringBooking.Frequency.WEEKLY, 10);
+        first.addRecurringBooking(series);
+        index.recurringBookingsChanged(first);
+        book(first, "b1", NINE.plusMinutes(10), NINE.plusMinutes(14));
+
+        cancel(first, "b1");
+        first.removeRecurringBooking("r1");
+        index.recurringBookingsChanged(first);
+        assertThat(index.findAvailableRooms(NINE, NINE.plusMinutes(15))).containsExactly(first, second);
+    }
+
+    @Test
+    @DisplayName("Room added after the index is built is found")
+    void addedRoomIsFound() {
+        Room third = new Room("3", "Tredje");
+        third.addBooking(new Booking("b1", "3", NINE, NINE.plusHours(1)));
+        index.roomAdded(third);
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactly(first, second);
+        assertThat(index.findAvailableRooms(NINE.plusHours(2), NINE.plusHours(3))).containsExactly(first, second, third);
+    }
+
+    @Test
+    @DisplayName("Removed room is no longer returned and its slot is reused")
+    void removedRoomIsNotFound() {
+        book(first, "b1", NINE, NINE.plusHours(1));
+        index.roomRemoved("1");
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactly(second);
+
+        Room third = new Room("3", "Tredje");
+        index.roomAdded(third);
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactlyInAnyOrder(second, third);
+    }
+
+    @Test
+    @DisplayName("Long booking is freed again and bookings beyond the bucket range are checked exactly")
+    void longBookingsAreIndexedAsRanges() {
+        book(first, "b1", NINE.minusYears(1), NINE.plusYears(1));
+        book(first, "b2", NINE.plusMonths(2), NINE.plusMonths(2).plusHours(1));
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactly(second);
+
+        cancel(first, "b1");
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactly(first, second);
+        assertThat(index.findAvailableRooms(NINE.plusMonths(2), NINE.plusMonths(2).plusHours(1))).containsExactly(second);
+
+        index = new AvailabilityIndex(Duration.ofSeconds(1));
+        index.rebuild(List.of(first, second));
+        book(second, "b3", NINE.minusYears(40), NINE.minusYears(40).plusHours(1));
+        book(second, "b4", NINE.plusYears(40), NINE.plusYears(40).plusHours(1));
+        assertThat(index.findAvailableRooms(NINE, NINE.plusHours(1))).containsExactly(first, second);
+        assertThat(index.findAvailableRooms(NINE.plusYears(40), NINE.plusYears(40).plusHours(1))).containsExactly(first);
+    }
+
+    @Test
+    @DisplayName("Agrees with a full scan for random bookings")
+    void agreesWithFullScan() {
+        Random random = new Random(42);
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rooms.add(new Room("r" + i, "Rum " + i));
+        }
+        index.rebuild(rooms);
+        for (int i = 0; i < 400; i++) {
+            Room room = rooms.get(random.nextInt(rooms.size()));
+            LocalDateTime start = NINE.plusMinutes(random.nextInt(24 * 60));
+            book(room, "b" + i, start, start.plusMinutes(1 + random.nextInt(90)));
+            if (i % 3 == 0) {
+                cancel(room, "b" + (i / 2));
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = NINE.plusMinutes(random.nextInt(24 * 60)).plusSeconds(random.nextInt(60));
+            LocalDateTime end = start.plusMinutes(random.nextInt(120));
+            List<Room> expected = rooms.stream().filter(room -> room.isAvailable(start, end)).toList();
+            assertThat(index.findAvailableRooms(start, end)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    private void book(Room room, String bookingId, LocalDateTime start, LocalDateTime end) {
+        Booking booking = new Booking(bookingId, room.getId(), start, end);
+        room.addBooking(booking);
+        index.bookingAdded(room, booking);
+    }
+
+    private void cancel(Room room, String bookingId) {
+        if (room.hasBooking(bookingId)) {
+            Booking booking = room.getBooking(bookingId);
+            room.removeBooking(bookingId);
+            index.bookingRemoved(room, booking);
+        }
+    }
+}
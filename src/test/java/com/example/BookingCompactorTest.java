@@ -0,0 +1,78 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class BookingCompactorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Moves finished bookings to the archive and keeps the rest live")
+    void movesFinishedBookingsToArchive() throws Exception {
+        AtomicReference<LocalDateTime> now = new AtomicReference<>(NOW);
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        Room room = new Room("1D", "Konferensrum");
+        repository.save(room);
+        BookingSystem bookingSystem = new BookingSystem(now::get, repository, new SilentNotificationService());
+        for (int i = 0; i < 5; i++) {
+            bookingSystem.bookRoom("1D", NOW.plusHours(i), NOW.plusHours(i).plusMinutes(30));
+        }
+
+        try (FileBookingArchive archive = new FileBookingArchive(directory);
+             BookingCompactor compactor = BookingCompactor.start(bookingSystem, archive, Duration.ofHours(1))) {
+            now.set(NOW.plusHours(2).plusMinutes(15));
+
+            assertThat(compactor.compactNow()).isEqualTo(2);
+            assertThat(compactor.compactNow()).isZero();
+
+            assertThat(room.getBookings()).hasSize(3);
+            assertThat(archive.findBookings("1D", NOW, NOW.plusDays(1))).hasSize(2);
+            assertThat(compactor.getArchivedCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Runs on a schedule in the background")
+    void runsOnSchedule() throws Exception {
+        AtomicReference<LocalDateTime> now = new AtomicReference<>(NOW);
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        Room room = new Room("1D", "Konferensrum");
+        repository.save(room);
+        BookingSystem bookingSystem = new BookingSystem(now::get, repository, new SilentNotificationService());
+        bookingSystem.bookRoom("1D", NOW, NOW.plusMinutes(30));
+        now.set(NOW.plusHours(1));
+
+        try (FileBookingArchive archive = new FileBookingArchive(directory);
+             BookingCompactor compactor = BookingCompactor.start(bookingSystem, archive, Duration.ofMillis(10))) {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (compactor.getArchivedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(compactor.getArchivedCount()).isEqualTo(1);
+            assertThat(room.getBookings()).isEmpty();
+        }
+    }
+
+    private static class SilentNotificationService implements NotificationService {
+        @Override
+        public void sendBookingConfirmation(Booking booking) {
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) {
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class BookingEventFeedTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    private static BookingEvent created(int i) {
+        return new BookingCreated(new Booking("b" + i, "1D", NOW.plusHours(i), NOW.plusHours(i + 1)), NOW);
+    }
+
+    @Nested
+    class Feed {
+
+        @Test
+        @DisplayName("Every subscriber sees all events in sequence order")
+        void subscribersSeeAllEvents() {
+            BookingEventFeed feed = new BookingEventFeed(16);
+            BookingEventFeed.Subscription first = feed.subscribe();
+            BookingEventFeed.Subscription second = feed.subscribe();
+            for (int i = 0; i < 10; i++) {
+                feed.publish(created(i));
+            }
+
+            List<SequencedBookingEvent> firstEvents = new ArrayList<>();
+            List<SequencedBookingEvent> secondEvents = new ArrayList<>();
+            assertThat(first.poll(firstEvents, 100)).isEqualTo(10);
+            assertThat(second.poll(secondEvents, 4)).isEqualTo(4);
+            second.poll(secondEvents, 100);
+
+            assertThat(firstEvents).extracting(SequencedBookingEvent::sequence).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+            assertThat(secondEvents).isEqualTo(firstEvents);
+            assertThat(first.getLag()).isZero();
+        }
+
+        @Test
+        @DisplayName("A new subscriber only sees later events")
+        void newSubscriberStartsAtTail() {
+            BookingEventFeed feed = new BookingEventFeed(16);
+            feed.publish(created(0));
+            BookingEventFeed.Subscription subscription = feed.subscribe();
+            feed.publish(created(1));
+
+            List<SequencedBookingEvent> events = new ArrayList<>();
+            subscription.poll(events, 100);
+            assertThat(events).extracting(SequencedBookingEvent::sequence).containsExactly(1L);
+        }
+
+        @Test
+        @DisplayName("A slow subscriber is overrun instead of blocking the publisher")
+        void slowSubscriberIsOverrun() {
+            BookingEventFeed feed = new BookingEventFeed(8);
+            BookingEventFeed.Subscription slow = feed.subscribe();
+            for (int i = 0; i < 20; i++) {
+                feed.publish(created(i));
+            }
+            assertThat(feed.getRemainingCapacity()).isZero();
+
+            List<SequencedBookingEvent> events = new ArrayList<>();
+            slow.poll(events, 100);
+            assertThat(events).extracting(SequencedBookingEvent::sequence).containsExactly(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L);
+            assertThat(slow.getMissedCount()).isEqualTo(12);
+            assertThat(feed.getRemainingCapacity()).isEqualTo(8);
+        }
+
+        @Test
+        @DisplayName("Concurrent publishers produce gapless sequence numbers")
+        void concurrentPublishersAreGapless() throws Exception {
+            int publishers = 8;
+            int perPublisher = 5_000;
+            BookingEventFeed feed = new BookingEventFeed(1 << 17);
+            BookingEventFeed.Subscription subscription = feed.subscribe();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(publishers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < publishers; p++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perPublisher; i++) {
+                        feed.publish(created(i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            List<SequencedBookingEvent> events = new ArrayList<>();
+            while (events.size() < publishers * perPublisher) {
+                subscription.poll(events, 1_000, Duration.ofSeconds(5));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            for (int i = 0; i < events.size(); i++) {
+                assertThat(events.get(i).sequence()).isEqualTo(i);
+            }
+            assertThat(subscription.getMissedCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("Capacity must be a power of two")
+        void rejectsOddCapacity() {
+            assertThatThrownBy(() -> new BookingEventFeed(100)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class FromBookingSystem {
+        private final InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        private final BookingEventFeed feed = new BookingEventFeed(1024);
+        private final BookingSystem bookingSystem;
+
+        FromBookingSystem() {
+            repository.save(new Room("1D", "Rum 1D"));
+            repository.save(new Room("2A", "Rum 2A"));
+            bookingSystem = BookingSystem.builder(() -> NOW, repository, new SilentNotificationService())
+                    .eventFeed(feed)
+                    .build();
+        }
+
+        @Test
+        @DisplayName("Publishes created and cancelled bookings")
+        void publishesBookingsAndCancellations() {
+            BookingEventFeed.Subscription subscription = feed.subscribe();
+            bookingSystem.bookRoom("1D", NOW.plusHours(1), NOW.plusHours(2));
+            assertThat(bookingSystem.bookRoom("1D", NOW.plusHours(1), NOW.plusHours(2))).isFalse();
+            bookingSystem.bookRooms(List.of(new BookingRequest("2A", NOW.plusHours(1), NOW.plusHours(2)),
+                    new BookingRequest("2A", NOW.plusHours(3), NOW.plusHours(4))));
+
+            List<SequencedBookingEvent> events = new ArrayList<>();
+            subscription.poll(events, 100);
+            assertThat(events).extracting(SequencedBookingEvent::event).allMatch(BookingCreated.class::isInstance);
+            assertThat(events).hasSize(3);
+
+            Booking first = ((BookingCreated) events.get(0).event()).booking();
+            bookingSystem.cancelBooking(first.getId());
+            events.clear();
+            subscription.poll(events, 100);
+            assertThat(events).singleElement().satisfies(event -> {
+                assertThat(event.sequence()).isEqualTo(3);
+                assertThat(event.event()).isEqualTo(new BookingCancelled(first, NOW));
+            });
+        }
+
+        @Test
+        @DisplayName("Publishes created and cancelled recurring bookings")
+        void publishesRecurringBookings() {
+            BookingEventFeed.Subscription subscription = feed.subscribe();
+            RecurringBooking recurring = bookingSystem.bookRecurringRoom("1D", NOW.plusHours(1), NOW.plusHours(2),
+                    RecurringBooking.Frequency.WEEKLY, 10).orElseThrow();
+            bookingSystem.cancelRecurringBooking(recurring.getId());
+
+            List<SequencedBookingEvent> events = new ArrayList<>();
+            subscription.poll(events, 100);
+            assertThat(events).extracting(SequencedBookingEvent::event).containsExactly(
+                    new RecurringBookingCreated(recurring, NOW), new RecurringBookingCancelled(recurring, NOW));
+        }
+
+        @Test
+        @DisplayName("A subscriber that never reads does not block bookings")
+        void idleSubscriberDoesNotBlock() {
+            BookingEventFeed small = new BookingEventFeed(4);
+            BookingSystem system = BookingSystem.builder(() -> NOW, repository, new SilentNotificationService())
+                    .eventFeed(small)
+                    .build();
+            BookingEventFeed.Subscription idle = small.subscribe();
+            for (int i = 0; i < 50; i++) {
+                assertThat(system.bookRoom("2A", NOW.plusHours(i), NOW.plusHours(i).plusMinutes(30))).isTrue();
+            }
+            assertThat(idle.getLag()).isEqualTo(50);
+            assertThat(idle.poll(new ArrayList<>(), 100)).isEqualTo(4);
+            assertThat(idle.getMissedCount()).isEqualTo(46);
+        }
+    }
+
+    private static class SilentNotificationService implements NotificationService {
+        @Override
+        public void sendBookingConfirmation(Booking booking) {
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) {
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class BookingSystemConcurrencyTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 8, 0);
+    private static final int THREADS = 32;
+    private static final int ROOMS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 500;
+
+    @Test
+    @DisplayName("Concurrent bookings never double book a room")
+    void concurrentBookingsNeverOverlap() throws Exception {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        for (int i = 0; i < ROOMS; i++) {
+            repository.save(new Room("r" + i, "Rum " + i));
+        }
+        BookingSystem bookingSystem = new BookingSystem(() -> NOW, repository, new SilentNotificationService());
+        AtomicInteger successfulBookings = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    LocalDateTime startTime = NOW.plusMinutes(random.nextInt(48 * 60));
+                    String roomId = "r" + random.nextInt(ROOMS);
+                    if (bookingSystem.bookRoom(roomId, startTime, startTime.plusMinutes(30))) {
+                        successfulBookings.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int storedBookings = 0;
+        for (Room room : repository.findAll()) {
+            List<Booking> bookings = new ArrayList<>(room.getBookings());
+            bookings.sort(Comparator.comparing(Booking::getStartTime));
+            for (int i = 1; i < bookings.size(); i++) {
+                Booking previous = bookings.get(i - 1);
+                assertThat(bookings.get(i).overlaps(previous.getStartTime(), previous.getEndTime())).isFalse();
+            }
+            storedBookings += bookings.size();
+        }
+        assertThat(storedBookings).isEqualTo(successfulBookings.get()).isPositive();
+    }
+
+    private static class SilentNotificationService implements NotificationService {
+        @Override
+        public void sendBookingConfirmation(Booking booking) {
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) {
+        }
+    }
+}
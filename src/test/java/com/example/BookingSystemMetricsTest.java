@@ -0,0 +1,80 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class BookingSystemMetricsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    private final BookingSystemMetrics metrics = new BookingSystemMetrics();
+    private final InMemoryRoomRepository repository = new InMemoryRoomRepository();
+
+    @Test
+    @DisplayName("Records latencies and outcomes of booking operations")
+    void recordsOperations() {
+        repository.save(new Room("1D", "Konferensrum"));
+        BookingSystem bookingSystem = BookingSystem.builder(() -> NOW, repository, new FailingNotificationService())
+                .metrics(metrics)
+                .build();
+
+        bookingSystem.bookRoom("1D", NOW, NOW.plusHours(1));
+        bookingSystem.bookRoom("1D", NOW, NOW.plusMinutes(30));
+        assertThatThrownBy(() -> bookingSystem.bookRoom("1D", NOW.minusHours(1), NOW));
+        bookingSystem.bookRooms(List.of(new BookingRequest("9Z", NOW, NOW.plusHours(1))), BatchMode.BEST_EFFORT);
+        bookingSystem.getAvailableRooms(NOW, NOW.plusHours(1));
+
+        assertThat(metrics.getBookRoomLatency().getCount()).isEqualTo(3);
+        assertThat(metrics.getBookRoomsLatency().getCount()).isEqualTo(1);
+        assertThat(metrics.getAvailableRoomsLatency().getCount()).isEqualTo(1);
+        // Första bokningen läser rummet en extra gång innan rummets lås skapas
+        assertThat(metrics.getRepositoryReadLatency().getCount()).isEqualTo(5);
+        assertThat(metrics.getRepositoryWriteLatency().getCount()).isEqualTo(1);
+        assertThat(metrics.getConflictCount()).isEqualTo(1);
+        assertThat(metrics.getRejectedCount()).isEqualTo(2);
+        assertThat(metrics.getNotificationFailedCount()).isEqualTo(1);
+        assertThat(metrics.getBookRoomLatency().getMaxMicros()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Exposes metrics through JMX")
+    void exposesMetricsThroughJmx() throws Exception {
+        metrics.operationCompleted(BookingMetricsListener.Operation.CANCEL_BOOKING, 2_000);
+        metrics.bookingConflicted(BookingMetricsListener.Operation.BOOK_ROOM);
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            CompositeData latency = (CompositeData) server.getAttribute(name, "CancelBookingLatency");
+            assertThat(latency.get("count")).isEqualTo(1L);
+            assertThat((double) latency.get("p50Micros")).isEqualTo(2.0, within(0.1));
+            assertThat(server.getAttribute(name, "ConflictCount")).isEqualTo(1L);
+
+            server.invoke(name, "reset", null, null);
+            assertThat(metrics.getConflictCount()).isZero();
+        } finally {
+            metrics.unregisterMBean(name);
+        }
+    }
+
+    private static class FailingNotificationService implements NotificationService {
+        @Override
+        public void sendBookingConfirmation(Booking booking) throws NotificationException {
+            throw new NotificationException("Notifieringstjänsten svarar inte");
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) throws NotificationException {
+            throw new NotificationException("Notifieringstjänsten svarar inte");
+        }
+    }
+}
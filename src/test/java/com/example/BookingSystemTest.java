@@ -3,15 +3,19 @@ package com.example;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 import static org.assertj.core.api.Assertions.*;
@@ -106,6 +110,16 @@ public class BookingSystemTest {
         }
 
 
+        @Test
+        @DisplayName("Reports the past start first when the request is also inverted")
+        void whenStartInPastAndEndBeforeStartThenThrowPastMessage() {
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            assertThatThrownBy(() -> bookingSystem.bookRoom(ROOM_ID, startTime.minusHours(2), startTime.minusHours(3)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Kan inte boka tid i dåtid");
+        }
+
+
         @Test
         @DisplayName("Throws exception when roomId is not found")
         void whenRoomIdNotFoundThenThrowException() {
@@ -136,6 +150,312 @@ public class BookingSystemTest {
             when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
             when(room.isAvailable(startTime, endTime)).thenReturn(true);
             assertThat(bookingSystem.bookRoom(ROOM_ID, startTime, endTime)).isTrue();
+            verify(roomRepository, times(1)).addBooking(eq(room), any(Booking.class));
+            verify(roomRepository, never()).save(room);
+        }
+
+
+        @Test
+        @DisplayName("Uses the injected booking id generator")
+        void whenIdGeneratorInjectedThenBookingGetsItsId() throws NotificationException {
+            Room room = new Room(ROOM_ID, "Konferensrum");
+            BookingSystem withIds = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                    .bookingIdGenerator(() -> BOOKING_ID)
+                    .build();
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            assertThat(withIds.bookRoom(ROOM_ID, startTime, endTime)).isTrue();
+            assertThat(room.hasBooking(BOOKING_ID)).isTrue();
+            verify(notificationService).sendBookingConfirmation(room.getBooking(BOOKING_ID));
+        }
+    }
+
+
+    @Nested
+    @DisplayName("bookRoom result Tests")
+    class BookRoomResultTests {
+
+
+        @Test
+        @DisplayName("Returns INVALID for missing fields and end before start")
+        void whenRequestInvalidThenReturnInvalid() {
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            assertThat(bookingSystem.bookRoom(new BookingRequest(null, startTime, endTime)))
+                    .isEqualTo(new BookingResult(BookingStatus.INVALID, null, "Bokning kräver giltiga start- och sluttider samt rum-id"));
+            assertThat(bookingSystem.bookRoom(new BookingRequest(ROOM_ID, endTime, startTime)))
+                    .isEqualTo(new BookingResult(BookingStatus.INVALID, null, "Sluttid måste vara efter starttid"));
+            verifyNoInteractions(roomRepository);
+        }
+
+
+        @Test
+        @DisplayName("Returns PAST when startTime is before current time")
+        void whenStartTimeInPastThenReturnPast() {
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            BookingResult result = bookingSystem.bookRoom(new BookingRequest(ROOM_ID, startTime.minusHours(ONE_HOUR), endTime));
+            assertThat(result).isEqualTo(new BookingResult(BookingStatus.PAST, null, "Kan inte boka tid i dåtid"));
+            verifyNoInteractions(roomRepository);
+        }
+
+
+        @Test
+        @DisplayName("Returns NO_SUCH_ROOM when roomId is not found")
+        void whenRoomNotFoundThenReturnNoSuchRoom() {
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.empty());
+            assertThat(bookingSystem.bookRoom(new BookingRequest(ROOM_ID, startTime, endTime)).status())
+                    .isEqualTo(BookingStatus.NO_SUCH_ROOM);
+        }
+
+
+        @Test
+        @DisplayName("Returns CONFLICT when room is not available")
+        void whenRoomNotAvailableThenReturnConflict() {
+            Room room = mock(Room.class);
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            when(room.isAvailable(startTime, endTime)).thenReturn(false);
+            assertThat(bookingSystem.bookRoom(new BookingRequest(ROOM_ID, startTime, endTime)).status())
+                    .isEqualTo(BookingStatus.CONFLICT);
+            verify(roomRepository, never()).addBooking(any(), any());
+        }
+
+
+        @Test
+        @DisplayName("Returns OK with the booking when room is available")
+        void whenRoomAvailableThenReturnOkWithBooking() throws NotificationException {
+            Room room = new Room(ROOM_ID, "Konferensrum");
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            BookingResult result = bookingSystem.bookRoom(new BookingRequest(ROOM_ID, startTime, endTime));
+            assertThat(result.status()).isEqualTo(BookingStatus.OK);
+            assertThat(room.hasBooking(result.booking().getId())).isTrue();
+            verify(notificationService).sendBookingConfirmation(result.booking());
+        }
+
+
+        @Test
+        @DisplayName("Returns INVALID when the room's storage rejects the booking id")
+        void whenCompactRoomGetsNonUuidIdThenReturnInvalid() {
+            Room room = new Room(ROOM_ID, "Konferensrum", Room.Storage.COMPACT);
+            BookingSystem withIds = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                    .bookingIdGenerator(() -> BOOKING_ID)
+                    .build();
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            BookingResult result = withIds.bookRoom(new BookingRequest(ROOM_ID, startTime, endTime));
+            assertThat(result).isEqualTo(new BookingResult(BookingStatus.INVALID, null, "Kompakt lagring kräver UUID som boknings-id"));
+            assertThat(room.hasBooking(BOOKING_ID)).isFalse();
+            verify(roomRepository, never()).addBooking(any(), any());
+            verifyNoInteractions(notificationService);
+        }
+    }
+
+
+    @Nested
+    @DisplayName("bookRooms Tests")
+    class BookRoomsTests {
+
+
+        private Room room;
+        private Room otherRoom;
+
+
+        @BeforeEach
+        void setUp() {
+            room = new Room(ROOM_ID, "Konferensrum");
+            otherRoom = new Room("2A", "Grupprum");
+            room.addBooking(new Booking(BOOKING_ID, ROOM_ID, startTime.plusHours(10), endTime.plusHours(10)));
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+        }
+
+
+        @Test
+        @DisplayName("Throws exception when requests are null")
+        void whenRequestsAreNullThenThrowException() {
+            reset(timeProvider);
+            assertThatThrownBy(() -> bookingSystem.bookRooms(null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Batchbokning kräver förfrågningar och läge");
+        }
+
+
+        @Test
+        @DisplayName("Best effort books what it can and reports each request")
+        void whenBestEffortThenEachRequestGetsResult() throws NotificationException {
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            when(roomRepository.findById("3C")).thenReturn(Optional.empty());
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest(ROOM_ID, startTime.plusHours(3), endTime.plusHours(3)),
+                    new BookingRequest(ROOM_ID, startTime, endTime),
+                    new BookingRequest(ROOM_ID, startTime.plusHours(10), endTime.plusHours(10)),
+                    new BookingRequest(ROOM_ID, startTime.plusMinutes(30), endTime.plusMinutes(30)),
+                    new BookingRequest(ROOM_ID, startTime.minusHours(ONE_HOUR), endTime),
+                    new BookingRequest(null, startTime, endTime),
+                    new BookingRequest("3C", startTime, endTime));
+
+            List<BatchBookingResult> results = bookingSystem.bookRooms(requests, BatchMode.BEST_EFFORT);
+
+            assertThat(results).extracting(BatchBookingResult::status).containsExactly(
+                    BookingStatus.OK, BookingStatus.OK, BookingStatus.CONFLICT, BookingStatus.CONFLICT,
+                    BookingStatus.PAST, BookingStatus.INVALID, BookingStatus.NO_SUCH_ROOM);
+            assertThat(room.getBookings()).hasSize(3);
+            verify(roomRepository, times(1)).addBookings(eq(room), anyList());
+            verify(notificationService).sendBookingConfirmations(argThat(bookings -> bookings.size() == 2));
+            verify(notificationService, never()).sendBookingConfirmation(any(Booking.class));
+        }
+
+
+        @Test
+        @DisplayName("Atomic batch books nothing when one request conflicts")
+        void whenAtomicAndOneConflictsThenNothingIsBooked() throws NotificationException {
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            when(roomRepository.findById("2A")).thenReturn(Optional.of(otherRoom));
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest("2A", startTime, endTime),
+                    new BookingRequest(ROOM_ID, startTime.plusHours(10), endTime.plusHours(10)));
+
+            List<BatchBookingResult> results = bookingSystem.bookRooms(requests);
+
+            assertThat(results).extracting(BatchBookingResult::status)
+                    .containsExactly(BookingStatus.ABORTED, BookingStatus.CONFLICT);
+            assertThat(otherRoom.getBookings()).isEmpty();
+            verify(roomRepository, never()).addBookings(any(), anyList());
+            verify(notificationService, never()).sendBookingConfirmations(anyList());
+        }
+
+
+        @Test
+        @DisplayName("Atomic batch books every request when all are free")
+        void whenAtomicAndAllFreeThenAllAreBooked() {
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            when(roomRepository.findById("2A")).thenReturn(Optional.of(otherRoom));
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest(ROOM_ID, startTime, endTime),
+                    new BookingRequest("2A", startTime, endTime),
+                    new BookingRequest("2A", startTime.plusHours(2), endTime.plusHours(2)));
+
+            List<BatchBookingResult> results = bookingSystem.bookRooms(requests, BatchMode.ATOMIC);
+
+            assertThat(results).allMatch(result -> result.status() == BookingStatus.OK);
+            assertThat(results.get(1).booking().getRoomId()).isEqualTo("2A");
+            assertThat(otherRoom.getBookings()).hasSize(2);
+            verify(roomRepository, times(1)).addBookings(eq(otherRoom), anyList());
+        }
+
+
+        @Test
+        @DisplayName("Confirms the whole batch in one call and counts a failed call for every booking")
+        void whenBatchBookedThenConfirmationsAreSentOnce() throws NotificationException {
+            BookingSystemMetrics metrics = new BookingSystemMetrics();
+            BookingSystem measured = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                    .metrics(metrics)
+                    .build();
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            when(roomRepository.findById("2A")).thenReturn(Optional.of(otherRoom));
+            doThrow(new NotificationException("Nere")).when(notificationService).sendBookingConfirmations(anyList());
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest(ROOM_ID, startTime, endTime),
+                    new BookingRequest("2A", startTime, endTime),
+                    new BookingRequest("2A", startTime.plusHours(2), endTime.plusHours(2)));
+
+            List<BatchBookingResult> results = measured.bookRooms(requests, BatchMode.BEST_EFFORT);
+
+            assertThat(results).allMatch(result -> result.status() == BookingStatus.OK);
+            verify(notificationService, times(1)).sendBookingConfirmations(
+                    results.stream().map(BatchBookingResult::booking).toList());
+            verify(notificationService, never()).sendBookingConfirmation(any(Booking.class));
+            assertThat(metrics.getNotificationFailedCount()).isEqualTo(3);
+        }
+    }
+
+
+    @Nested
+    @DisplayName("bookRecurringRoom Tests")
+    class BookRecurringRoomTests {
+
+
+        private Room room;
+
+
+        @BeforeEach
+        void setUp() {
+            room = new Room(ROOM_ID, "Konferensrum");
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+        }
+
+
+        @Test
+        @DisplayName("Throws exception when frequency is null")
+        void whenFrequencyIsNullThenThrowException() {
+            reset(timeProvider);
+            assertThatThrownBy(() -> bookingSystem.bookRecurringRoom(ROOM_ID, startTime, endTime, null, 10))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Återkommande bokning kräver giltiga tider, frekvens och rum-id");
+        }
+
+
+        @Test
+        @DisplayName("Returns empty when one occurrence conflicts")
+        void whenOccurrenceConflictsThenReturnEmpty() {
+            room.addBooking(new Booking(BOOKING_ID, ROOM_ID, startTime.plusWeeks(40), endTime.plusWeeks(40)));
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+
+            assertThat(bookingSystem.bookRecurringRoom(ROOM_ID, startTime, endTime,
+                    RecurringBooking.Frequency.WEEKLY, 104)).isEmpty();
+            assertThat(room.getRecurringBookings()).isEmpty();
+            verify(roomRepository, never()).addRecurringBooking(any(), any());
+        }
+
+
+        @Test
+        @DisplayName("Books series and cancels it again")
+        void whenSeriesIsFreeThenBookAndCancel() throws NotificationException {
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+
+            RecurringBooking series = bookingSystem.bookRecurringRoom(ROOM_ID, startTime, endTime,
+                    RecurringBooking.Frequency.WEEKLY, 104).orElseThrow();
+
+            assertThat(room.getBookings()).isEmpty();
+            assertThat(bookingSystem.bookRoom(ROOM_ID, startTime.plusWeeks(103), endTime.plusWeeks(103))).isFalse();
+            verify(roomRepository, times(1)).addRecurringBooking(room, series);
+            verify(notificationService, times(1)).sendBookingConfirmation(any(Booking.class));
+
+            assertThat(bookingSystem.cancelRecurringBooking(series.getId())).isTrue();
+            assertThat(bookingSystem.bookRoom(ROOM_ID, startTime.plusWeeks(103), endTime.plusWeeks(103))).isTrue();
+            verify(roomRepository, times(1)).removeRecurringBooking(room, series.getId());
+            verify(roomRepository, never()).findAll();
+        }
+
+
+        @Test
+        @DisplayName("Cancelling a series keeps occurrences that already started")
+        void whenSeriesHasStartedThenKeepStartedOccurrences() throws NotificationException {
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            RecurringBooking series = bookingSystem.bookRecurringRoom(ROOM_ID, startTime, endTime,
+                    RecurringBooking.Frequency.WEEKLY, 10).orElseThrow();
+            when(timeProvider.getCurrentTime()).thenReturn(startTime.plusWeeks(2).plusMinutes(1));
+
+            assertThat(bookingSystem.cancelRecurringBooking(series.getId())).isTrue();
+
+            assertThat(room.getRecurringBooking(series.getId()).getOccurrences()).isEqualTo(3);
+            assertThat(room.isAvailable(startTime.plusWeeks(3), endTime.plusWeeks(3))).isTrue();
+            verify(roomRepository).addRecurringBooking(room, room.getRecurringBooking(series.getId()));
+            verify(notificationService).sendCancellationConfirmation(argThat(booking -> booking.getId().equals(series.getId() + "#3")));
+        }
+
+
+        @Test
+        @DisplayName("Throws exception when every occurrence has started")
+        void whenSeriesHasEndedThenThrowException() {
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            RecurringBooking series = bookingSystem.bookRecurringRoom(ROOM_ID, startTime, endTime,
+                    RecurringBooking.Frequency.WEEKLY, 2).orElseThrow();
+            when(timeProvider.getCurrentTime()).thenReturn(startTime.plusWeeks(1).plusMinutes(1));
+
+            assertThatThrownBy(() -> bookingSystem.cancelRecurringBooking(series.getId()))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Kan inte avboka påbörjad eller avslutad bokning");
         }
     }
 
@@ -181,6 +501,147 @@ public class BookingSystemTest {
             List<Room> availableRooms = bookingSystem.getAvailableRooms(startTime, endTime);
             assertThat(availableRooms).hasSize(1).contains(room);
         }
+
+
+        @Test
+        @DisplayName("Availability index follows bookings made through the system")
+        void whenAvailabilityIndexUsedThenBookedRoomIsExcluded() {
+            Room booked = new Room(ROOM_ID, "Konferensrum");
+            Room free = new Room("2A", "Grupprum");
+            BookingSystem indexed = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                    .availabilityIndex(new AvailabilityIndex(Duration.ofMinutes(15)))
+                    .build();
+            when(roomRepository.findAll()).thenReturn(List.of(booked, free));
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(booked));
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+
+            assertThat(indexed.getAvailableRooms(startTime, endTime)).containsExactly(booked, free);
+            indexed.bookRoom(ROOM_ID, startTime, endTime);
+            assertThat(indexed.getAvailableRooms(startTime, endTime)).containsExactly(free);
+            verify(roomRepository, times(1)).findAll();
+        }
+
+
+        @Test
+        @DisplayName("Room added after the first query is found by the availability index")
+        void whenRoomAddedAfterFirstQueryThenItIsFound() {
+            Room existing = new Room(ROOM_ID, "Konferensrum");
+            Room added = new Room("2A", "Grupprum");
+            BookingSystem indexed = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                    .availabilityIndex(new AvailabilityIndex(Duration.ofMinutes(15)))
+                    .build();
+            when(roomRepository.findAll()).thenReturn(List.of(existing));
+
+            assertThat(indexed.getAvailableRooms(startTime, endTime)).containsExactly(existing);
+            indexed.addRoom(added);
+            assertThat(indexed.getAvailableRooms(startTime, endTime)).containsExactly(existing, added);
+            verify(roomRepository).save(added);
+            verify(roomRepository, times(1)).findAll();
+        }
+
+
+        @Test
+        @DisplayName("Throws exception when adding a null room")
+        void whenAddedRoomIsNullThenThrowException() {
+            assertThatThrownBy(() -> bookingSystem.addRoom(null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Rum och rum-id kan inte vara null");
+        }
+    }
+
+
+    @Nested
+    @DisplayName("getAvailableRooms paging Tests")
+    class GetAvailableRoomsPagingTests {
+
+
+        @Test
+        @DisplayName("Throws exception when limit is not positive")
+        void whenLimitIsZeroThenThrowException() {
+            assertThatThrownBy(() -> bookingSystem.getAvailableRooms(startTime, endTime, 0, null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Antalet rum per sida måste vara positivt");
+        }
+
+
+        @Test
+        @DisplayName("Stops reading rooms once the page is full")
+        void whenPageIsFullThenStopReading() {
+            Room booked = new Room("1A", "Upptaget");
+            booked.addBooking(new Booking(BOOKING_ID, "1A", startTime, endTime));
+            List<Room> rooms = List.of(booked, new Room("1B", "B"), new Room("1C", "C"), new Room("1D", "D"));
+            List<Room> read = new ArrayList<>();
+            when(roomRepository.streamAll(null)).thenReturn(rooms.stream().peek(read::add));
+
+            AvailableRoomsPage page = bookingSystem.getAvailableRooms(startTime, endTime, 2, null);
+
+            assertThat(page.rooms()).extracting(Room::getId).containsExactly("1B", "1C");
+            assertThat(page.nextCursor()).isEqualTo("1C");
+            assertThat(read).hasSize(3);
+            verify(roomRepository, never()).findAll();
+        }
+
+
+        @Test
+        @DisplayName("Continues after the cursor and ends with no cursor")
+        void whenLastPageThenCursorIsNull() {
+            when(roomRepository.streamAll("1C")).thenReturn(Stream.of(new Room("1D", "D")));
+
+            AvailableRoomsPage page = bookingSystem.getAvailableRooms(startTime, endTime, 2, "1C");
+
+            assertThat(page.rooms()).extracting(Room::getId).containsExactly("1D");
+            assertThat(page.nextCursor()).isNull();
+        }
+    }
+
+
+    @Nested
+    @DisplayName("findNextAvailableSlot Tests")
+    class FindNextAvailableSlotTests {
+
+
+        @Test
+        @DisplayName("Throws exception when duration is null")
+        void whenDurationIsNullThenThrowException() {
+            assertThatThrownBy(() -> bookingSystem.findNextAvailableSlot(ROOM_ID, null, startTime))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Sökning kräver rum, längd och starttid");
+        }
+
+
+        @Test
+        @DisplayName("Never suggests a time in the past")
+        void whenAfterIsInPastThenStartsNow() {
+            Room room = new Room(ROOM_ID, "Konferensrum");
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+
+            AvailableSlot slot = bookingSystem.findNextAvailableSlot(ROOM_ID, Duration.ofHours(1), startTime.minusDays(1))
+                    .orElseThrow();
+
+            assertThat(slot.startTime()).isEqualTo(startTime);
+            assertThat(slot.endTime()).isEqualTo(endTime);
+        }
+
+
+        @Test
+        @DisplayName("Returns the earliest slot across rooms")
+        void whenSeveralRoomsThenEarliestWins() {
+            Room busy = new Room(ROOM_ID, "Konferensrum");
+            busy.addBooking(new Booking(BOOKING_ID, ROOM_ID, startTime, endTime.plusHours(5)));
+            Room lessBusy = new Room("2A", "Grupprum");
+            lessBusy.addBooking(new Booking("booking2", "2A", startTime, endTime));
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(busy));
+            when(roomRepository.findById("2A")).thenReturn(Optional.of(lessBusy));
+
+            AvailableSlot slot = bookingSystem.findNextAvailableSlot(List.of(ROOM_ID, "2A"), Duration.ofHours(1), startTime)
+                    .orElseThrow();
+
+            assertThat(slot.room()).isSameAs(lessBusy);
+            assertThat(slot.startTime()).isEqualTo(endTime.plusNanos(1));
+            assertThat(bookingSystem.bookRoom("2A", slot.startTime(), slot.endTime())).isTrue();
+        }
     }
 
 
@@ -201,7 +662,7 @@ public class BookingSystemTest {
         @Test
         @DisplayName("Returns false when booking does not exist")
         void whenBookingDoesNotExistThenReturnFalse() {
-            when(roomRepository.findAll()).thenReturn(Collections.emptyList());
+            when(roomRepository.findByBookingId(BOOKING_ID)).thenReturn(Optional.empty());
             assertThat(bookingSystem.cancelBooking(BOOKING_ID)).isFalse();
         }
 
@@ -211,7 +672,8 @@ public class BookingSystemTest {
         void whenBookingIsInPastThenThrowException() {
             Room room = mock(Room.class);
             Booking booking = new Booking(BOOKING_ID, ROOM_ID, startTime.minusHours(ONE_HOUR), endTime.minusHours(ONE_HOUR));
-            when(roomRepository.findAll()).thenReturn(Collections.singletonList(room));
+            when(roomRepository.findByBookingId(BOOKING_ID)).thenReturn(Optional.of(room));
+            when(room.getId()).thenReturn(ROOM_ID);
             when(room.hasBooking(BOOKING_ID)).thenReturn(true);
             when(room.getBooking(BOOKING_ID)).thenReturn(booking);
             when(timeProvider.getCurrentTime()).thenReturn(startTime);
@@ -226,28 +688,47 @@ public class BookingSystemTest {
         void whenBookingIsCancelledThenReturnTrue() throws NotificationException {
             Room room = mock(Room.class);
             Booking booking = new Booking(BOOKING_ID, ROOM_ID, startTime, endTime);
-            when(roomRepository.findAll()).thenReturn(Collections.singletonList(room));
+            when(roomRepository.findByBookingId(BOOKING_ID)).thenReturn(Optional.of(room));
+            when(room.getId()).thenReturn(ROOM_ID);
             when(room.hasBooking(BOOKING_ID)).thenReturn(true);
             when(room.getBooking(BOOKING_ID)).thenReturn(booking);
             when(timeProvider.getCurrentTime()).thenReturn(startTime);
             assertThat(bookingSystem.cancelBooking(BOOKING_ID)).isTrue();
-            verify(roomRepository, times(1)).save(room);
+            verify(roomRepository, times(1)).removeBooking(room, BOOKING_ID);
             verify(notificationService, times(1)).sendCancellationConfirmation(booking);
         }
 
 
+        @Test
+        @DisplayName("Cancels booking made through the system without scanning rooms")
+        void whenBookingMadeBySystemThenCancelUsesIndex() throws NotificationException {
+            Room room = new Room(ROOM_ID, "Konferensrum");
+            when(timeProvider.getCurrentTime()).thenReturn(startTime);
+            when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+            bookingSystem.bookRoom(ROOM_ID, startTime, endTime);
+            ArgumentCaptor<Booking> booking = ArgumentCaptor.forClass(Booking.class);
+            verify(notificationService).sendBookingConfirmation(booking.capture());
+
+            assertThat(bookingSystem.cancelBooking(booking.getValue().getId())).isTrue();
+            assertThat(room.hasBooking(booking.getValue().getId())).isFalse();
+            verify(roomRepository, never()).findByBookingId(anyString());
+            verify(roomRepository, never()).findAll();
+        }
+
+
         @Test
         @DisplayName("Continues when notification fails")
         void whenNotificationFailsThenContinue() throws NotificationException {
             Room room = mock(Room.class);
             Booking booking = new Booking(BOOKING_ID, ROOM_ID, startTime, endTime);
-            when(roomRepository.findAll()).thenReturn(Collections.singletonList(room));
+            when(roomRepository.findByBookingId(BOOKING_ID)).thenReturn(Optional.of(room));
+            when(room.getId()).thenReturn(ROOM_ID);
             when(room.hasBooking(BOOKING_ID)).thenReturn(true);
             when(room.getBooking(BOOKING_ID)).thenReturn(booking);
             when(timeProvider.getCurrentTime()).thenReturn(startTime);
             doThrow(new NotificationException("Failed to send notification")).when(notificationService).sendCancellationConfirmation(booking);
             assertThat(bookingSystem.cancelBooking(BOOKING_ID)).isTrue();
-            verify(roomRepository, times(1)).save(room);
+            verify(roomRepository, times(1)).removeBooking(room, BOOKING_ID);
         }
     }
 }
@@ -0,0 +1,223 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class CachingRoomRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    private final SlowRoomRepository slow = new SlowRoomRepository();
+
+    @Test
+    @DisplayName("Repeated lookups are served from the cache")
+    void repeatedLookupsAreCached() {
+        slow.rooms.save(new Room("1D", "Konferensrum"));
+        CachingRoomRepository cache = new CachingRoomRepository(slow);
+
+        Room first = cache.findById("1D").orElseThrow();
+        assertThat(cache.findById("1D")).containsSame(first);
+        assertThat(cache.findById("9Z")).isEmpty();
+
+        assertThat(slow.findByIdCalls).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Least recently used room is evicted first")
+    void evictsLeastRecentlyUsed() {
+        for (String id : List.of("1A", "1B", "1C")) {
+            slow.rooms.save(new Room(id, id));
+        }
+        CachingRoomRepository cache = new CachingRoomRepository(slow, 2);
+        cache.findById("1A");
+        cache.findById("1B");
+        cache.findById("1A");
+        cache.findById("1C");
+
+        assertThat(cache.getSize()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        cache.findById("1A");
+        assertThat(slow.findByIdCalls).isEqualTo(3);
+        cache.findById("1B");
+        assertThat(slow.findByIdCalls).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Weight bound counts bookings per room")
+    void evictsByWeight() {
+        Room busy = new Room("1D", "Konferensrum");
+        for (int i = 0; i < 5; i++) {
+            busy.addBooking(new Booking("b" + i, "1D", NOW.plusHours(i), NOW.plusHours(i).plusMinutes(30)));
+        }
+        slow.rooms.save(busy);
+        slow.rooms.save(new Room("2A", "Grupprum"));
+        CachingRoomRepository cache = new CachingRoomRepository(slow, 6, room -> 1 + room.getBookings().size());
+
+        cache.findById("2A");
+        cache.findById("1D");
+
+        assertThat(cache.getWeight()).isEqualTo(6);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Writes go through and keep the findAll snapshot current")
+    void writesGoThroughAndUpdateSnapshot() {
+        slow.rooms.save(new Room("1D", "Konferensrum"));
+        CachingRoomRepository cache = new CachingRoomRepository(slow);
+        Room room = cache.findAll().get(0);
+
+        Room added = new Room("2A", "Grupprum");
+        cache.save(added);
+        Booking booking = new Booking("b1", "1D", NOW, NOW.plusHours(1));
+        room.addBooking(booking);
+        cache.addBooking(room, booking);
+
+        assertThat(slow.rooms.findById("2A")).containsSame(added);
+        assertThat(slow.addBookingCalls).isEqualTo(1);
+        assertThat(cache.findAll()).containsExactlyInAnyOrder(room, added);
+        assertThat(slow.findAllCalls).isEqualTo(1);
+        assertThat(cache.getFindAllHitCount()).isEqualTo(1);
+        assertThat(cache.getFindAllMissCount()).isEqualTo(1);
+        assertThat(cache.findById("2A")).containsSame(added);
+        assertThat(slow.findByIdCalls).isZero();
+    }
+
+    @Test
+    @DisplayName("findAll keeps no snapshot larger than the weight bound")
+    void findAllStaysWithinWeightBound() {
+        for (int i = 0; i < 100; i++) {
+            slow.rooms.save(new Room("R" + i, "Rum " + i));
+        }
+        CachingRoomRepository cache = new CachingRoomRepository(slow, 10);
+
+        assertThat(cache.findAll()).hasSize(100);
+        assertThat(cache.findAll()).hasSize(100);
+
+        assertThat(slow.findAllCalls).isEqualTo(2);
+        assertThat(cache.getSize()).isZero();
+        cache.findById("R1");
+        assertThat(slow.findByIdCalls).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("findAll weighs the cached room, not an older loaded copy")
+    void findAllWeighsCachedInstance() {
+        Room busy = new Room("1D", "Konferensrum");
+        for (int i = 0; i < 5; i++) {
+            busy.addBooking(new Booking("b" + i, "1D", NOW.plusHours(i), NOW.plusHours(i).plusMinutes(30)));
+        }
+        CachingRoomRepository cache = new CachingRoomRepository(slow, 3, room -> 1 + room.getBookings().size());
+        cache.save(busy);
+        // Det underliggande repositoryt ger en äldre kopia utan bokningar
+        slow.rooms.save(new Room("1D", "Konferensrum"));
+
+        assertThat(cache.findAll()).containsExactly(busy);
+        assertThat(cache.findAll()).containsExactly(busy);
+
+        assertThat(slow.findAllCalls).isEqualTo(2);
+        assertThat(cache.getFindAllHitCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Evicting a room from the findAll snapshot drops the snapshot")
+    void evictionDropsSnapshot() {
+        for (int i = 0; i < 4; i++) {
+            slow.rooms.save(new Room("R" + i, "Rum " + i));
+        }
+        CachingRoomRepository cache = new CachingRoomRepository(slow, 4);
+
+        cache.findAll();
+        assertThat(cache.findAll()).hasSize(4);
+        assertThat(cache.getFindAllHitCount()).isEqualTo(1);
+        assertThat(cache.getSize()).isEqualTo(4);
+
+        cache.save(new Room("Z", "Ny"));
+
+        assertThat(cache.getSize()).isEqualTo(4);
+        assertThat(cache.findAll()).hasSize(5);
+        assertThat(slow.findAllCalls).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Invalidation reloads from the underlying repository")
+    void invalidationReloads() {
+        slow.rooms.save(new Room("1D", "Konferensrum"));
+        CachingRoomRepository cache = new CachingRoomRepository(slow);
+        cache.findAll();
+        slow.rooms.save(new Room("2A", "Grupprum"));
+        assertThat(cache.findAll()).hasSize(1);
+
+        cache.invalidateAll();
+
+        assertThat(cache.findAll()).hasSize(2);
+        assertThat(slow.findAllCalls).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Booking system works on top of the cache")
+    void bookingSystemUsesCache() {
+        slow.rooms.save(new Room("1D", "Konferensrum"));
+        CachingRoomRepository cache = new CachingRoomRepository(slow);
+        BookingSystem bookingSystem = new BookingSystem(() -> NOW, cache, new SilentNotificationService());
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(bookingSystem.bookRoom("1D", NOW.plusHours(i), NOW.plusHours(i).plusMinutes(30))).isTrue();
+        }
+        assertThat(bookingSystem.bookRoom("1D", NOW, NOW.plusMinutes(10))).isFalse();
+
+        assertThat(slow.findByIdCalls).isEqualTo(1);
+        assertThat(slow.addBookingCalls).isEqualTo(10);
+        assertThat(slow.rooms.findById("1D").orElseThrow().getBookings()).hasSize(10);
+    }
+
+    // Räknar anropen, i produktion skulle varje anrop vara en rundresa till databasen
+    private static class SlowRoomRepository implements RoomRepository {
+        private final InMemoryRoomRepository rooms = new InMemoryRoomRepository();
+        private int findByIdCalls;
+        private int findAllCalls;
+        private int addBookingCalls;
+
+        @Override
+        public Optional<Room> findById(String id) {
+            findByIdCalls++;
+            return rooms.findById(id);
+        }
+
+        @Override
+        public List<Room> findAll() {
+            findAllCalls++;
+            return rooms.findAll();
+        }
+
+        @Override
+        public void save(Room room) {
+            rooms.save(room);
+        }
+
+        @Override
+        public void addBooking(Room room, Booking booking) {
+            addBookingCalls++;
+            rooms.save(room);
+        }
+    }
+
+    private static class SilentNotificationService implements NotificationService {
+        @Override
+        public void sendBookingConfirmation(Booking booking) {
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) {
+        }
+    }
+}
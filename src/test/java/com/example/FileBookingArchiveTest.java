@@ -0,0 +1,77 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class FileBookingArchiveTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Finds archived bookings by room and time after reopening")
+    void findsBookingsAfterReopen() {
+        try (FileBookingArchive archive = new FileBookingArchive(directory)) {
+            archive.append(List.of(new Booking("b1", "1D", NINE, NINE.plusHours(1)),
+                    new Booking("b2", "2A", NINE, NINE.plusHours(1))));
+            archive.append(List.of(new Booking("b3", "1D", NINE.plusDays(7), NINE.plusDays(7).plusHours(1))));
+        }
+
+        try (FileBookingArchive reopened = new FileBookingArchive(directory)) {
+            assertThat(reopened.getBookingCount()).isEqualTo(3);
+            assertThat(reopened.findBookings("1D", NINE.minusDays(1), NINE.plusDays(30)))
+                    .extracting(Booking::getId).containsExactly("b1", "b3");
+            assertThat(reopened.findBookings(null, NINE.plusHours(1), NINE.plusHours(1)))
+                    .extracting(Booking::getId).containsExactly("b1", "b2");
+            assertThat(reopened.findBookings("1D", NINE.plusDays(1), NINE.plusDays(2))).isEmpty();
+            assertThat(reopened.findBookings("1D", NINE, NINE).get(0).getStartTime()).isEqualTo(NINE);
+        }
+    }
+
+    @Test
+    @DisplayName("Stores bookings compressed")
+    void storesBookingsCompressed() {
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            bookings.add(new Booking("00000000-0000-0001-0000-%012d".formatted(i), "1D",
+                    NINE.plusHours(i), NINE.plusHours(i).plusMinutes(30)));
+        }
+        try (FileBookingArchive archive = new FileBookingArchive(directory)) {
+            archive.append(bookings);
+            assertThat(archive.getSizeInBytes()).isLessThan(1_000 * 20);
+        }
+    }
+
+    @Test
+    @DisplayName("Drops a torn segment at the end of the file")
+    void dropsTornSegment() throws IOException {
+        try (FileBookingArchive archive = new FileBookingArchive(directory)) {
+            archive.append(List.of(new Booking("b1", "1D", NINE, NINE.plusHours(1))));
+        }
+        Files.write(directory.resolve("bookings.archive"), new byte[]{0, 0, 0, 99, 0, 0}, StandardOpenOption.APPEND);
+
+        try (FileBookingArchive reopened = new FileBookingArchive(directory)) {
+            assertThat(reopened.getBookingCount()).isEqualTo(1);
+            reopened.append(List.of(new Booking("b2", "1D", NINE.plusDays(1), NINE.plusDays(1).plusHours(1))));
+        }
+
+        try (FileBookingArchive reopened = new FileBookingArchive(directory)) {
+            assertThat(reopened.findBookings("1D", NINE, NINE.plusDays(2)))
+                    .extracting(Booking::getId).containsExactly("b1", "b2");
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class FileRoomRepositoryTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Recovers rooms and bookings from the write-ahead log")
+    void recoversFromLog() {
+        try (FileRoomRepository repository = new FileRoomRepository(directory)) {
+            Room room = new Room("1D", "Konferensrum");
+            room.addBooking(new Booking("b1", "1D", NINE, NINE.plusHours(1)));
+            room.addBooking(new Booking("b2", "1D", NINE.plusHours(2), NINE.plusHours(3)));
+            repository.save(room);
+            room.removeBooking("b1");
+            repository.save(room);
+        }
+
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            Room room = reopened.findById("1D").orElseThrow();
+            assertThat(room.getName()).isEqualTo("Konferensrum");
+            assertThat(room.hasBooking("b1")).isFalse();
+            assertThat(room.getBooking("b2").getStartTime()).isEqualTo(NINE.plusHours(2));
+            assertThat(reopened.findByBookingId("b2")).containsSame(room);
+        }
+    }
+
+    @Test
+    @DisplayName("Recovers from snapshot plus log tail")
+    void recoversFromSnapshotAndLogTail() {
+        try (FileRoomRepository repository = new FileRoomRepository(directory, 3)) {
+            Room room = new Room("1D", "Konferensrum");
+            repository.save(room);
+            for (int i = 0; i < 10; i++) {
+                room.addBooking(new Booking("b" + i, "1D", NINE.plusHours(i), NINE.plusHours(i).plusMinutes(30)));
+                repository.save(room);
+            }
+            room.removeBooking("b9");
+            repository.save(room);
+        }
+        assertThat(directory.resolve("rooms.snapshot")).exists();
+
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            Room room = reopened.findById("1D").orElseThrow();
+            assertThat(room.getBookings()).hasSize(9);
+            assertThat(room.hasBooking("b9")).isFalse();
+        }
+    }
+
+    @Test
+    @DisplayName("Recovers recurring bookings from log and snapshot")
+    void recoversRecurringBookings() {
+        try (FileRoomRepository repository = new FileRoomRepository(directory, 4)) {
+            Room room = new Room("1D", "Konferensrum");
+            repository.save(room);
+            for (int i = 0; i < 3; i++) {
+                RecurringBooking recurring = new RecurringBooking("r" + i, "1D", NINE.plusHours(i),
+                        NINE.plusHours(i).plusMinutes(30), RecurringBooking.Frequency.WEEKLY, 104);
+                room.addRecurringBooking(recurring);
+                repository.addRecurringBooking(room, recurring);
+            }
+            room.removeRecurringBooking("r2");
+            repository.removeRecurringBooking(room, "r2");
+        }
+        assertThat(directory.resolve("rooms.snapshot")).exists();
+
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            Room room = reopened.findById("1D").orElseThrow();
+            assertThat(room.getRecurringBookings()).extracting(RecurringBooking::getId).containsExactlyInAnyOrder("r0", "r1");
+            assertThat(room.getRecurringBooking("r1").getOccurrences()).isEqualTo(104);
+            assertThat(room.isAvailable(NINE.plusWeeks(90).plusHours(1), NINE.plusWeeks(90).plusHours(1))).isFalse();
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps the storage mode of compact rooms")
+    void keepsCompactStorage() {
+        String bookingId = "00000000-0000-0001-0000-000000000001";
+        try (FileRoomRepository repository = new FileRoomRepository(directory)) {
+            Room room = new Room("1D", "Konferensrum", Room.Storage.COMPACT);
+            room.addBooking(new Booking(bookingId, "1D", NINE, NINE.plusHours(1)));
+            repository.save(room);
+            repository.save(new Room("2A", "Grupprum"));
+        }
+
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            assertThat(reopened.findById("1D").orElseThrow().getStorage()).isEqualTo(Room.Storage.COMPACT);
+            assertThat(reopened.findById("1D").orElseThrow().getBooking(bookingId).getStartTime()).isEqualTo(NINE);
+            assertThat(reopened.findById("2A").orElseThrow().getStorage()).isEqualTo(Room.Storage.INDEXED);
+            reopened.snapshot();
+        }
+
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            assertThat(reopened.findById("1D").orElseThrow().getStorage()).isEqualTo(Room.Storage.COMPACT);
+        }
+    }
+
+    @Test
+    @DisplayName("Ignores a torn record at the end of the log")
+    void ignoresTornRecord() throws IOException {
+        long validLength;
+        try (FileRoomRepository repository = new FileRoomRepository(directory)) {
+            Room room = new Room("1D", "Konferensrum");
+            room.addBooking(new Booking("b1", "1D", NINE, NINE.plusHours(1)));
+            repository.save(room);
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("rooms.wal"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            validLength = findEndOfLog(channel);
+            channel.write(ByteBuffer.allocate(8).putInt(500).putInt(42).flip(), validLength);
+        }
+
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            Room room = reopened.findById("1D").orElseThrow();
+            assertThat(room.hasBooking("b1")).isTrue();
+            room.addBooking(new Booking("b2", "1D", NINE.plusHours(2), NINE.plusHours(3)));
+            reopened.save(room);
+        }
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            assertThat(reopened.findById("1D").orElseThrow().getBookings()).hasSize(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Works as the repository behind BookingSystem")
+    void worksWithBookingSystem() {
+        try (FileRoomRepository repository = new FileRoomRepository(directory)) {
+            repository.save(new Room("1D", "Konferensrum"));
+            BookingSystem bookingSystem = new BookingSystem(() -> NINE.minusDays(1), repository, new NoOpNotificationService());
+            assertThat(bookingSystem.bookRoom("1D", NINE, NINE.plusHours(1))).isTrue();
+        }
+        try (FileRoomRepository reopened = new FileRoomRepository(directory)) {
+            assertThat(reopened.findById("1D").orElseThrow().isAvailable(NINE, NINE.plusHours(1))).isFalse();
+            assertThat(Files.exists(directory.resolve("rooms.wal"))).isTrue();
+        }
+    }
+
+    private static long findEndOfLog(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        long position = 0;
+        while (true) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.flip().getInt();
+            if (length == 0) {
+                return position;
+            }
+            position += 4 + length + 4;
+        }
+    }
+
+    private static class NoOpNotificationService implements NotificationService {
+        @Override
+        public void sendBookingConfirmation(Booking booking) {
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) {
+        }
+    }
+}
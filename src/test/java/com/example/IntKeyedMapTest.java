@@ -0,0 +1,58 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class IntKeyedMapTest {
+
+    @Test
+    @DisplayName("Replacing a value keeps its position")
+    void replaceKeepsInsertionOrder() {
+        IntKeyedMap<String> map = new IntKeyedMap<>();
+        map.put(3, "a");
+        map.put(1, "b");
+        map.put(3, "c");
+        assertThat(map.values()).containsExactly("c", "b");
+    }
+
+    @Test
+    @DisplayName("Removed key is gone and can be added again last")
+    void removeAndReAdd() {
+        IntKeyedMap<String> map = new IntKeyedMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        assertThat(map.remove(1)).isEqualTo("a");
+        assertThat(map.get(1)).isNull();
+        assertThat(map.remove(1)).isNull();
+        map.put(1, "c");
+        assertThat(map.values()).containsExactly("b", "c");
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Behaves like a LinkedHashMap under random operations")
+    void agreesWithLinkedHashMap() {
+        Random random = new Random(7);
+        IntKeyedMap<Integer> map = new IntKeyedMap<>();
+        Map<Integer, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+            }
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map.values()).containsExactlyElementsOf(new ArrayList<>(expected.values()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Every value falls in a bucket that contains it")
+    void bucketsContainTheirValues() {
+        for (long value : new long[]{0, 1, 31, 32, 33, 63, 64, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.highestValueIn(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestValueIn(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles are within the bucket precision")
+    void percentilesAreWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1_000);
+        assertThat(histogram.getValueAtPercentile(50)).isCloseTo(500_000, withinPercentage(4));
+        assertThat(histogram.getValueAtPercentile(99)).isCloseTo(990_000, withinPercentage(4));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1_000_000);
+        assertThat(histogram.getMean()).isEqualTo(500_500);
+    }
+
+    @Test
+    @DisplayName("Reset clears all recorded values")
+    void resetClears() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMax()).isZero();
+        assertThat(histogram.getValueAtPercentile(99)).isZero();
+    }
+}
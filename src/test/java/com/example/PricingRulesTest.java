@@ -0,0 +1,153 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class PricingRulesTest {
+    private static final Item SODA = new Item(1, "Läsk", new BigDecimal("12.50"), 0, 1);
+    private static final Item PASTA = new Item(2, "Pasta", new BigDecimal("20"), 0, 1);
+    private static final Item SAUCE = new Item(3, "Sås", new BigDecimal("25"), 0, 1);
+    private static final Item BREAD = new Item(4, "Bröd", new BigDecimal("30"), 0, 1);
+
+    private static Item times(Item item, int quantity) {
+        return new Item(item.barcode(), item.name(), item.price(), item.discount(), quantity);
+    }
+
+    @Nested
+    class MultiBuy {
+        private final PricingRules rules = new PricingRules(List.of(new MultiBuyRule(1, 3, new BigDecimal("30"))));
+
+        @Test
+        @DisplayName("Each full group gets the multi-buy price")
+        void fullGroupsGetMultiBuyPrice() {
+            ShoppingCart cart = new ShoppingCart(rules);
+            cart.addItem(times(SODA, 7));
+
+            // Två grupper för 30 kr och en läsk till ordinarie pris
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("72.50");
+        }
+
+        @Test
+        @DisplayName("Discount follows quantity changes and removal")
+        void discountFollowsChanges() {
+            ShoppingCart cart = new ShoppingCart(rules);
+            cart.addItem(times(SODA, 2));
+            assertThat(cart.getPromotionDiscount()).isEqualByComparingTo("0");
+            cart.addItem(SODA);
+            assertThat(cart.getPromotionDiscount()).isEqualByComparingTo("7.50");
+            cart.removeItem(SODA);
+            assertThat(cart.getPromotionDiscount()).isEqualByComparingTo("0");
+            assertThat(cart.getItemTotal()).isEqualTo(BigDecimal.ZERO);
+        }
+
+        @Test
+        @DisplayName("Uses the price after the item's own discount")
+        void usesDiscountedUnitPrice() {
+            ShoppingCart cart = new ShoppingCart(new PricingRules(List.of(new MultiBuyRule(2, 2, new BigDecimal("30")))));
+            cart.addItem(new Item(2, "Pasta", new BigDecimal("20"), 50, 2));
+
+            // 2 x 10 kr är redan billigare än flerköpet
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("20");
+        }
+    }
+
+    @Nested
+    class Bundle {
+        private final PricingRules rules = new PricingRules(List.of(new BundleRule(List.of(2, 3), new BigDecimal("35"))));
+
+        @Test
+        @DisplayName("One bundle per complete set of items")
+        void bundlePerCompleteSet() {
+            ShoppingCart cart = new ShoppingCart(rules);
+            cart.addItem(times(PASTA, 3));
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("60");
+            cart.addItem(times(SAUCE, 2));
+
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("90");
+            cart.removeItem(PASTA);
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("50");
+        }
+    }
+
+    @Nested
+    class CartDiscount {
+        private final PricingRules rules = new PricingRules(List.of(
+                new CartDiscountRule(new BigDecimal("100"), 5),
+                new CartDiscountRule(new BigDecimal("200"), 10),
+                new CartDiscountRule(new BigDecimal("300"), 8)));
+
+        @Test
+        @DisplayName("Applies the best discount whose threshold is reached")
+        void appliesBestReachedDiscount() {
+            ShoppingCart cart = new ShoppingCart(rules);
+            cart.addItem(times(BREAD, 3));
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("90");
+            cart.addItem(times(BREAD, 8));
+
+            // 330 kr når både 10 % och 8 %, den högre gäller
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("297");
+        }
+
+        @Test
+        @DisplayName("Threshold is checked after line promotions")
+        void thresholdAfterLinePromotions() {
+            ShoppingCart cart = new ShoppingCart(new PricingRules(List.of(
+                    new MultiBuyRule(4, 4, new BigDecimal("80")),
+                    new CartDiscountRule(new BigDecimal("100"), 10))));
+            cart.addItem(times(BREAD, 4));
+
+            assertThat(cart.getItemTotal()).isEqualByComparingTo("80");
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects an item in more than one line rule")
+    void rejectsOverlappingRules() {
+        assertThatThrownBy(() -> new PricingRules(List.of(
+                new MultiBuyRule(2, 2, BigDecimal.TEN),
+                new BundleRule(List.of(2, 3), BigDecimal.TEN))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("2");
+    }
+
+    @Test
+    @DisplayName("Incremental repricing matches pricing the final cart from scratch")
+    void incrementalMatchesFromScratch() {
+        List<PricingRule> rules = new ArrayList<>();
+        for (int barcode = 0; barcode < 20; barcode += 2) {
+            rules.add(new MultiBuyRule(barcode, 2 + barcode % 3, BigDecimal.valueOf(10 + barcode)));
+        }
+        for (int barcode = 21; barcode < 40; barcode += 4) {
+            rules.add(new BundleRule(List.of(barcode, barcode + 1, barcode + 2), BigDecimal.valueOf(25)));
+        }
+        rules.add(new CartDiscountRule(new BigDecimal("500"), 5));
+        PricingRules pricingRules = new PricingRules(rules);
+
+        Random random = new Random(42);
+        ShoppingCart incremental = new ShoppingCart(pricingRules);
+        for (int i = 0; i < 2_000; i++) {
+            int barcode = random.nextInt(45);
+            Item item = new Item(barcode, "Vara " + barcode, BigDecimal.valueOf(5 + barcode % 7, 1), barcode % 5 == 0 ? 25 : 0,
+                    1 + random.nextInt(3));
+            if (random.nextInt(4) == 0) {
+                incremental.removeItem(item);
+            } else {
+                incremental.addItem(item);
+            }
+        }
+
+        ShoppingCart fromScratch = new ShoppingCart(pricingRules);
+        incremental.getCart().forEach(fromScratch::addItem);
+        assertThat(incremental.getItemTotal()).isEqualByComparingTo(fromScratch.getItemTotal());
+        assertThat(incremental.getPromotionDiscount()).isEqualByComparingTo(fromScratch.getPromotionDiscount());
+    }
+}
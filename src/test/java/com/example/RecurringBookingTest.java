@@ -0,0 +1,92 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static com.example.RecurringBooking.Frequency.DAILY;
+import static com.example.RecurringBooking.Frequency.WEEKLY;
+import static org.assertj.core.api.Assertions.*;
+
+
+class RecurringBookingTest {
+
+    // En måndag
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private static final LocalDateTime TEN = NINE.plusHours(1);
+
+    private final RecurringBooking mondays = new RecurringBooking("r1", "1D", NINE, TEN, WEEKLY, NINE.plusYears(2));
+
+    @Test
+    @DisplayName("Counts occurrences up to the end date")
+    void countsOccurrencesUntilEndDate() {
+        assertThat(mondays.getOccurrences()).isEqualTo(105);
+        assertThat(mondays.getLastStart()).isEqualTo(NINE.plusWeeks(104));
+    }
+
+    @Test
+    @DisplayName("Overlaps only the weekly occurrences, with inclusive boundaries")
+    void overlapsOccurrencesOnly() {
+        assertThat(mondays.overlaps(NINE.plusWeeks(50).plusMinutes(30), NINE.plusWeeks(50).plusMinutes(40))).isTrue();
+        assertThat(mondays.overlaps(TEN.plusWeeks(3), TEN.plusWeeks(3).plusHours(1))).isTrue();
+        assertThat(mondays.overlaps(TEN.plusWeeks(3).plusSeconds(1), NINE.plusWeeks(4).minusSeconds(1))).isFalse();
+        assertThat(mondays.overlaps(NINE.plusDays(1), TEN.plusDays(1))).isFalse();
+        assertThat(mondays.overlaps(NINE.plusWeeks(105), TEN.plusWeeks(105))).isFalse();
+        assertThat(mondays.overlaps(NINE.minusWeeks(1), TEN.minusWeeks(1))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Finds the end of the last overlapping occurrence")
+    void findsLastOverlappingEnd() {
+        assertThat(mondays.lastOverlappingEnd(NINE.plusWeeks(2), NINE.plusWeeks(5).plusMinutes(1)))
+                .isEqualTo(TEN.plusWeeks(5));
+        assertThat(mondays.lastOverlappingEnd(NINE.plusDays(1), TEN.plusDays(1))).isNull();
+    }
+
+    @Test
+    @DisplayName("Detects overlap between two series")
+    void overlapsOtherSeries() {
+        RecurringBooking daily = new RecurringBooking("r2", "1D", NINE.plusDays(1).plusMinutes(30), TEN.plusDays(1), DAILY, 30);
+        RecurringBooking tuesdays = new RecurringBooking("r3", "1D", NINE.plusDays(1), TEN.plusDays(1), WEEKLY, 100);
+        assertThat(mondays.overlaps(daily)).isTrue();
+        assertThat(mondays.overlaps(tuesdays)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Expands only the occurrences inside the window")
+    void expandsOccurrencesInWindow() {
+        assertThat(mondays.occurrencesBetween(NINE.plusWeeks(10).plusMinutes(30), NINE.plusWeeks(12)))
+                .extracting(Booking::getId, Booking::getStartTime)
+                .containsExactly(tuple("r1#10", NINE.plusWeeks(10)), tuple("r1#11", NINE.plusWeeks(11)),
+                        tuple("r1#12", NINE.plusWeeks(12)));
+    }
+
+    @Test
+    @DisplayName("Rejects occurrences that overlap each other")
+    void rejectsSelfOverlappingSeries() {
+        assertThatThrownBy(() -> new RecurringBooking("r1", "1D", NINE, NINE.plusDays(1), DAILY, 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Förekomsterna i en återkommande bokning får inte överlappa varandra");
+    }
+
+    @Test
+    @DisplayName("Rejects a series too long to compute")
+    void rejectsOverflowingOccurrenceCount() {
+        assertThatThrownBy(() -> new RecurringBooking("r1", "1D", NINE, TEN, WEEKLY, Long.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("För många förekomster i återkommande bokning");
+        assertThatThrownBy(() -> new RecurringBooking("r1", "1D", NINE, TEN, DAILY, 200_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Counts occurrences that started before a time")
+    void countsStartedOccurrences() {
+        assertThat(mondays.occurrencesStartedBefore(NINE)).isZero();
+        assertThat(mondays.occurrencesStartedBefore(NINE.plusMinutes(1))).isEqualTo(1);
+        assertThat(mondays.occurrencesStartedBefore(NINE.plusWeeks(2))).isEqualTo(2);
+        assertThat(mondays.occurrencesStartedBefore(NINE.plusYears(3))).isEqualTo(105);
+        assertThat(mondays.truncatedTo(2).getLastEnd()).isEqualTo(TEN.plusWeeks(1));
+    }
+}
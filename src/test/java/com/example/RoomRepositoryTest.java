@@ -0,0 +1,46 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+class RoomRepositoryTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    private final RoomRepository repository = mock(RoomRepository.class, CALLS_REAL_METHODS);
+
+    @Test
+    @DisplayName("Delta operations fall back to saving the whole room")
+    void deltaOperationsFallBackToSave() {
+        Room room = new Room("1D", "Konferensrum");
+        repository.addBooking(room, new Booking("b1", "1D", NINE, NINE.plusHours(1)));
+        repository.removeBooking(room, "b1");
+        verify(repository, times(2)).save(room);
+    }
+
+    @Test
+    @DisplayName("findByBookingId falls back to scanning all rooms")
+    void findByBookingIdScansAllRooms() {
+        Room empty = new Room("1A", "Tomt");
+        Room booked = new Room("1D", "Konferensrum");
+        booked.addBooking(new Booking("b1", "1D", NINE, NINE.plusHours(1)));
+        doReturn(List.of(empty, booked)).when(repository).findAll();
+        assertThat(repository.findByBookingId("b1")).containsSame(booked);
+        assertThat(repository.findByBookingId("b2")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("streamAll falls back to sorting all rooms after the cursor")
+    void streamAllSortsAfterCursor() {
+        doReturn(List.of(new Room("1C", "C"), new Room("1A", "A"), new Room("1B", "B"))).when(repository).findAll();
+        assertThat(repository.streamAll()).extracting(Room::getId).containsExactly("1A", "1B", "1C");
+        assertThat(repository.streamAll("1A")).extracting(Room::getId).containsExactly("1B", "1C");
+    }
+}
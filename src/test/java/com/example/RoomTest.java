@@ -0,0 +1,363 @@
+package com.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class RoomTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private static final LocalDateTime TEN = NINE.plusHours(1);
+    private static final LocalDateTime ELEVEN = NINE.plusHours(2);
+
+    private Room room;
+
+    @BeforeEach
+    void setUp() {
+        room = new Room("1D", "Konferensrum");
+    }
+
+    @Nested
+    @DisplayName("isAvailable Tests")
+    class IsAvailableTests {
+
+        @Test
+        @DisplayName("Empty room is available")
+        void emptyRoomIsAvailable() {
+            assertThat(room.isAvailable(NINE, TEN)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Overlapping interval is not available")
+        void overlappingIntervalIsNotAvailable() {
+            room.addBooking(new Booking("b1", "1D", NINE, ELEVEN));
+            assertThat(room.isAvailable(TEN, TEN.plusMinutes(30))).isFalse();
+            assertThat(room.isAvailable(NINE.minusMinutes(30), NINE.plusMinutes(1))).isFalse();
+        }
+
+        @Test
+        @DisplayName("Touching boundaries count as overlap")
+        void touchingBoundariesAreInclusive() {
+            room.addBooking(new Booking("b1", "1D", NINE, TEN));
+            assertThat(room.isAvailable(TEN, ELEVEN)).isFalse();
+            assertThat(room.isAvailable(NINE.minusHours(1), NINE)).isFalse();
+            assertThat(room.isAvailable(TEN.plusSeconds(1), ELEVEN)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Long booking far before the interval is still found")
+        void longBookingStartingEarlyIsFound() {
+            room.addBooking(new Booking("short", "1D", ELEVEN.plusHours(1), ELEVEN.plusHours(2)));
+            room.addBooking(new Booking("long", "1D", NINE.minusDays(3), ELEVEN));
+            assertThat(room.isAvailable(TEN, TEN.plusMinutes(15))).isFalse();
+        }
+
+        @Test
+        @DisplayName("One long booking among many short ones does not hide or invent overlaps")
+        void longBookingAmongManyShortOnes() {
+            assertLongBookingAmongShortOnes(room, i -> "b" + i);
+        }
+
+        @Test
+        @DisplayName("Interval is available again after removal")
+        void availableAfterRemoval() {
+            room.addBooking(new Booking("long", "1D", NINE.minusDays(3), ELEVEN));
+            room.addBooking(new Booking("b2", "1D", NINE.minusDays(3), NINE.minusDays(2)));
+            room.removeBooking("long");
+            assertThat(room.isAvailable(TEN, ELEVEN)).isTrue();
+            assertThat(room.isAvailable(NINE.minusDays(3), NINE.minusDays(3))).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Booking lookup Tests")
+    class LookupTests {
+
+        @Test
+        @DisplayName("Finds booking by id")
+        void findsBookingById() {
+            Booking booking = new Booking("b1", "1D", NINE, TEN);
+            room.addBooking(booking);
+            assertThat(room.hasBooking("b1")).isTrue();
+            assertThat(room.getBooking("b1")).isSameAs(booking);
+        }
+
+        @Test
+        @DisplayName("Throws exception when booking does not exist")
+        void missingBookingThrowsException() {
+            assertThat(room.hasBooking("b1")).isFalse();
+            assertThatThrownBy(() -> room.getBooking("b1"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Bokning finns inte");
+        }
+
+        @Test
+        @DisplayName("Removes only bookings that ended before the given time")
+        void removesEndedBookings() {
+            room.addBooking(new Booking("long", "1D", NINE.minusDays(3), ELEVEN));
+            room.addBooking(new Booking("b1", "1D", NINE.minusDays(2), NINE.minusDays(2).plusHours(1)));
+            room.addBooking(new Booking("b2", "1D", NINE.minusHours(1), NINE));
+            assertThat(room.removeBookingsEndedBefore(TEN)).extracting(Booking::getId).containsExactly("b1", "b2");
+            assertThat(room.getBookings()).extracting(Booking::getId).containsExactly("long");
+        }
+
+        @Test
+        @DisplayName("Removing unknown booking does nothing")
+        void removingUnknownBookingIsIgnored() {
+            room.addBooking(new Booking("b1", "1D", NINE, TEN));
+            room.removeBooking("b2");
+            assertThat(room.hasBooking("b1")).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Recurring booking Tests")
+    class RecurringBookingTests {
+
+        private final RecurringBooking mondays =
+                new RecurringBooking("r1", "1D", NINE, TEN, RecurringBooking.Frequency.WEEKLY, 104);
+
+        @Test
+        @DisplayName("Occurrences block the room without being stored as bookings")
+        void occurrencesBlockRoom() {
+            room.addRecurringBooking(mondays);
+            assertThat(room.getBookings()).isEmpty();
+            assertThat(room.isAvailable(NINE.plusWeeks(80), TEN.plusWeeks(80))).isFalse();
+            assertThat(room.isAvailable(NINE.plusWeeks(80).plusDays(1), TEN.plusWeeks(80).plusDays(1))).isTrue();
+        }
+
+        @Test
+        @DisplayName("Series conflicts with a single booking on one of its dates")
+        void seriesConflictsWithBooking() {
+            room.addBooking(new Booking("b1", "1D", TEN.plusWeeks(30).minusMinutes(15), ELEVEN.plusWeeks(30)));
+            assertThat(room.isAvailable(mondays)).isFalse();
+            room.removeBooking("b1");
+            assertThat(room.isAvailable(mondays)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Bookings in a window include expanded occurrences in start order")
+        void bookingsBetweenIncludeOccurrences() {
+            room.addRecurringBooking(mondays);
+            room.addBooking(new Booking("b1", "1D", ELEVEN.plusWeeks(1), ELEVEN.plusWeeks(1).plusHours(1)));
+            assertThat(room.getBookingsBetween(NINE.plusWeeks(1), NINE.plusWeeks(2)))
+                    .extracting(Booking::getId)
+                    .containsExactly("r1#1", "b1", "r1#2");
+        }
+
+        @Test
+        @DisplayName("Throws exception when recurring booking does not exist")
+        void missingRecurringBookingThrowsException() {
+            room.addRecurringBooking(mondays);
+            room.removeRecurringBooking("r1");
+            assertThat(room.hasRecurringBooking("r1")).isFalse();
+            assertThatThrownBy(() -> room.getRecurringBooking("r1"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Återkommande bokning finns inte");
+        }
+    }
+
+    @Nested
+    @DisplayName("Compact storage Tests")
+    class CompactStorageTests {
+
+        private static final String ID_1 = "00000000-0000-0001-0000-000000000001";
+        private static final String ID_2 = "00000000-0000-0001-0000-000000000002";
+
+        private Room compact;
+
+        @BeforeEach
+        void setUp() {
+            compact = new Room("1D", "Konferensrum", Room.Storage.COMPACT);
+        }
+
+        @Test
+        @DisplayName("Overlap checks match indexed storage")
+        void overlapChecksMatchIndexedStorage() {
+            compact.addBooking(new Booking(ID_1, "1D", NINE.minusDays(3), ELEVEN));
+            compact.addBooking(new Booking(ID_2, "1D", ELEVEN.plusHours(1), ELEVEN.plusHours(2)));
+            assertThat(compact.isAvailable(TEN, TEN.plusMinutes(15))).isFalse();
+            assertThat(compact.isAvailable(ELEVEN.plusNanos(1), ELEVEN.plusHours(1).minusNanos(1))).isTrue();
+            assertThat(compact.isAvailable(ELEVEN.plusHours(2), ELEVEN.plusHours(3))).isFalse();
+
+            compact.removeBooking(ID_1);
+            assertThat(compact.isAvailable(TEN, TEN.plusMinutes(15))).isTrue();
+            assertThat(compact.isAvailable(LocalDateTime.MIN, LocalDateTime.MAX)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Booking is recreated with exact times on lookup")
+        void bookingIsRecreatedOnLookup() {
+            LocalDateTime start = NINE.plusNanos(123_456_789);
+            compact.addBooking(new Booking(ID_1, "1D", start, TEN));
+            Booking booking = compact.getBooking(ID_1);
+            assertThat(booking.getId()).isEqualTo(ID_1);
+            assertThat(booking.getRoomId()).isEqualTo("1D");
+            assertThat(booking.getStartTime()).isEqualTo(start);
+            assertThat(booking.getEndTime()).isEqualTo(TEN);
+            assertThat(compact.hasBooking("b1")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Adding same id again replaces the booking")
+        void addingSameIdReplacesBooking() {
+            compact.addBooking(new Booking(ID_1, "1D", NINE, TEN));
+            compact.addBooking(new Booking(ID_1, "1D", ELEVEN, ELEVEN.plusHours(1)));
+            assertThat(compact.getBookings()).hasSize(1);
+            assertThat(compact.isAvailable(NINE, TEN)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Removes ended bookings and keeps overlap checks correct")
+        void removesEndedBookings() {
+            compact.addBooking(new Booking(ID_1, "1D", NINE.minusDays(3), NINE.minusDays(1)));
+            compact.addBooking(new Booking(ID_2, "1D", NINE, TEN));
+            assertThat(compact.removeBookingsEndedBefore(NINE)).extracting(Booking::getId).containsExactly(ID_1);
+            assertThat(compact.hasBooking(ID_2)).isTrue();
+            assertThat(compact.isAvailable(NINE.minusDays(2), NINE.minusDays(2))).isTrue();
+            assertThat(compact.isAvailable(TEN, ELEVEN)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Looks up bookings by id among many, also with shared start times")
+        void looksUpManyBookingsById() {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                String id = new UUID(i % 7, i).toString();
+                ids.add(id);
+                compact.addBooking(new Booking(id, "1D", NINE.plusMinutes(i / 3), NINE.plusMinutes(i / 3 + 1)));
+            }
+            for (int i = 0; i < ids.size(); i += 2) {
+                compact.removeBooking(ids.get(i));
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                assertThat(compact.hasBooking(ids.get(i))).isEqualTo(i % 2 == 1);
+            }
+            assertThat(compact.getBooking(ids.get(1)).getStartTime()).isEqualTo(NINE);
+            assertThat(compact.getBookings()).hasSize(2_500);
+        }
+
+        @Test
+        @DisplayName("One long booking among many short ones does not hide or invent overlaps")
+        void longBookingAmongManyShortOnes() {
+            assertLongBookingAmongShortOnes(compact, i -> new UUID(1, i).toString());
+        }
+
+        @Test
+        @DisplayName("Throws exception when id is not a UUID")
+        void nonUuidIdThrowsException() {
+            assertThatThrownBy(() -> compact.addBooking(new Booking("b1", "1D", NINE, TEN)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Kompakt lagring kräver UUID som boknings-id");
+        }
+
+        @Test
+        @DisplayName("Reports bookings its storage cannot hold without throwing")
+        void reportsStorageRejection() {
+            LocalDateTime farFuture = LocalDateTime.of(3000, 1, 1, 0, 0);
+
+            assertThat(compact.storageRejection(new Booking(new UUID(1, 1).toString(), "1D", NINE, TEN))).isNull();
+            assertThat(compact.storageRejection(new Booking("b1", "1D", NINE, TEN)))
+                    .isEqualTo("Kompakt lagring kräver UUID som boknings-id");
+            assertThat(compact.storageRejection(new Booking(new UUID(1, 2).toString(), "1D", NINE, farFuture)))
+                    .isEqualTo("Tiden ligger utanför vad kompakt lagring kan representera");
+            assertThat(room.storageRejection(new Booking("b1", "1D", NINE, farFuture))).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("findNextAvailableStart Tests")
+    class FindNextAvailableStartTests {
+
+        private static final Duration HOUR = Duration.ofHours(1);
+
+        @Test
+        @DisplayName("Empty room is free right away")
+        void emptyRoomIsFreeRightAway() {
+            assertThat(room.findNextAvailableStart(NINE, HOUR)).isEqualTo(NINE);
+        }
+
+        @Test
+        @DisplayName("Skips gaps that are too short")
+        void skipsShortGaps() {
+            room.addBooking(new Booking("b1", "1D", NINE, TEN));
+            room.addBooking(new Booking("b2", "1D", TEN.plusMinutes(30), ELEVEN));
+            room.addBooking(new Booking("b3", "1D", ELEVEN.plusHours(1).plusMinutes(1), ELEVEN.plusHours(2)));
+
+            LocalDateTime start = room.findNextAvailableStart(NINE.minusMinutes(30), HOUR);
+
+            assertThat(start).isEqualTo(ELEVEN.plusNanos(1));
+            assertThat(room.isAvailable(start, start.plus(HOUR))).isTrue();
+        }
+
+        @Test
+        @DisplayName("Long booking starting before the search is not missed")
+        void longBookingBeforeSearchIsFound() {
+            room.addBooking(new Booking("long", "1D", NINE.minusDays(2), ELEVEN));
+            room.addBooking(new Booking("short", "1D", NINE.minusDays(1), NINE.minusDays(1).plusHours(1)));
+            assertThat(room.findNextAvailableStart(NINE, HOUR)).isEqualTo(ELEVEN.plusNanos(1));
+        }
+
+        @Test
+        @DisplayName("Jumps over recurring occurrences")
+        void jumpsOverRecurringOccurrences() {
+            room.addRecurringBooking(new RecurringBooking("r1", "1D", NINE, ELEVEN, RecurringBooking.Frequency.DAILY, 10));
+            room.addBooking(new Booking("b1", "1D", ELEVEN.plusMinutes(30), ELEVEN.plusHours(22)));
+
+            assertThat(room.findNextAvailableStart(TEN, HOUR)).isEqualTo(ELEVEN.plusDays(1).plusNanos(1));
+        }
+
+        @Test
+        @DisplayName("Gives up when no slot starts before the limit")
+        void returnsNullAfterLimit() {
+            room.addBooking(new Booking("b1", "1D", NINE, ELEVEN));
+            assertThat(room.findNextAvailableStart(NINE, HOUR, TEN)).isNull();
+            assertThat(room.findNextAvailableStart(NINE, HOUR, ELEVEN.plusNanos(1))).isEqualTo(ELEVEN.plusNanos(1));
+        }
+
+        @Test
+        @DisplayName("Compact storage walks its bookings the same way")
+        void compactStorageWalksBookings() {
+            Room compact = new Room("1D", "Konferensrum", Room.Storage.COMPACT);
+            compact.addBooking(new Booking("00000000-0000-0001-0000-000000000001", "1D", NINE.minusDays(2), ELEVEN));
+            compact.addBooking(new Booking("00000000-0000-0001-0000-000000000002", "1D",
+                    ELEVEN.plusMinutes(30), ELEVEN.plusHours(1)));
+            assertThat(compact.findNextAvailableStart(NINE, HOUR)).isEqualTo(ELEVEN.plusHours(1).plusNanos(1));
+        }
+    }
+
+    // En bokning över hela januari och 2000 korta bokningar med en kvarts lucka efter varje
+    private static void assertLongBookingAmongShortOnes(Room room, IntFunction<String> ids) {
+        LocalDateTime monthStart = NINE.minusDays(6);
+        room.addBooking(new Booking(ids.apply(-1), "1D", monthStart, monthStart.plusDays(30)));
+        LocalDateTime first = monthStart.plusDays(31);
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime start = first.plusMinutes(30L * i);
+            room.addBooking(new Booking(ids.apply(i), "1D", start, start.plusMinutes(15)));
+        }
+
+        assertThat(room.isAvailable(monthStart.plusDays(10), monthStart.plusDays(10).plusHours(1))).isFalse();
+        assertThat(room.isAvailable(monthStart.plusDays(30).plusNanos(1), first.minusNanos(1))).isTrue();
+        for (int i = 0; i < 2_000; i += 97) {
+            LocalDateTime gap = first.plusMinutes(30L * i + 15).plusNanos(1);
+            assertThat(room.isAvailable(gap, gap.plusMinutes(14))).isTrue();
+            assertThat(room.isAvailable(gap, gap.plusMinutes(15))).isFalse();
+        }
+        assertThat(room.getBookingsBetween(first.plusMinutes(60), first.plusMinutes(90)))
+                .extracting(Booking::getId)
+                .containsExactly(ids.apply(2), ids.apply(3));
+        assertThat(room.findNextAvailableStart(monthStart.plusDays(1), Duration.ofHours(1)))
+                .isEqualTo(monthStart.plusDays(30).plusNanos(1));
+    }
+}
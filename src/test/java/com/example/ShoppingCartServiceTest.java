@@ -0,0 +1,214 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class ShoppingCartServiceTest {
+    private static final Item TOMATO = new Item(5085, "Tomato", new BigDecimal("5.25"), 0, 10);
+    private static final Item APPLE = new Item(1500, "Äpple", BigDecimal.valueOf(15L), 20, 1);
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    private final AtomicReference<LocalDateTime> now = new AtomicReference<>(START);
+    private final TimeProvider clock = now::get;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Keeps a separate cart per session")
+    void separateCartPerSession() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofMinutes(30))) {
+            service.addItem("s1", TOMATO);
+            service.addItem("s2", APPLE);
+            service.addItem("s2", APPLE);
+
+            assertThat(service.getItems("s1")).containsExactly(TOMATO);
+            assertThat(service.getItemTotal("s2")).isEqualByComparingTo("24");
+            assertThat(service.getItems("unknown")).isEmpty();
+            assertThat(service.getCartCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Reading an unknown session does not create a cart")
+    void readingDoesNotCreateCart() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofMinutes(30))) {
+            assertThat(service.getItemTotal("s1")).isEqualTo(BigDecimal.ZERO);
+            service.removeItem("s1", TOMATO);
+            assertThat(service.getCartCount()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Removes carts that have been idle longer than the ttl")
+    void evictsIdleCarts() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofMinutes(30))) {
+            service.addItem("s1", TOMATO);
+            now.set(START.plusMinutes(20));
+            service.addItem("s2", APPLE);
+
+            now.set(START.plusMinutes(30));
+            assertThat(service.evictIdleCarts()).isEqualTo(1);
+            assertThat(service.getItems("s1")).isEmpty();
+            assertThat(service.getItems("s2")).containsExactly(APPLE);
+            assertThat(service.getExpiredCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Spills cold carts to disk and restores them on next access")
+    void spillsAndRestoresColdCarts() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofHours(2), Duration.ofMinutes(15), directory)) {
+            service.addItem("session/1", TOMATO);
+            service.addItem("session/1", APPLE);
+            BigDecimal total = service.getItemTotal("session/1");
+
+            now.set(START.plusMinutes(15));
+            assertThat(service.evictIdleCarts()).isEqualTo(1);
+            assertThat(service.getCartCount()).isZero();
+            assertThat(service.getSpilledCartCount()).isEqualTo(1);
+
+            assertThat(service.getItems("session/1")).containsExactly(TOMATO, APPLE);
+            assertThat(service.getItemTotal("session/1")).isEqualTo(total);
+            assertThat(service.getSpilledCartCount()).isZero();
+            assertThat(service.getRestoreCount()).isEqualTo(1);
+            try (var files = Files.list(directory.resolve("carts"))) {
+                assertThat(files).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deletes spilled carts once the ttl has passed")
+    void deletesExpiredSpilledCarts() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofHours(2), Duration.ofMinutes(15), directory)) {
+            service.addItem("s1", TOMATO);
+            now.set(START.plusMinutes(15));
+            service.evictIdleCarts();
+
+            now.set(START.plusHours(2));
+            service.evictIdleCarts();
+            assertThat(service.getSpilledCartCount()).isZero();
+            assertThat(service.getItems("s1")).isEmpty();
+            try (var files = Files.list(directory.resolve("carts"))) {
+                assertThat(files).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A cart that cannot be read stays on disk")
+    void unreadableCartStaysOnDisk() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofHours(2), Duration.ofMinutes(15), directory)) {
+            service.addItem("s1", TOMATO);
+            now.set(START.plusMinutes(15));
+            service.evictIdleCarts();
+            Path spilledFile;
+            try (var files = Files.list(directory.resolve("carts"))) {
+                spilledFile = files.findFirst().orElseThrow();
+            }
+            byte[] content = Files.readAllBytes(spilledFile);
+            Files.write(spilledFile, new byte[]{1});
+
+            assertThatThrownBy(() -> service.getItems("s1")).isInstanceOf(UncheckedIOException.class);
+            assertThat(service.getSpilledCartCount()).isEqualTo(1);
+            assertThat(spilledFile).exists();
+
+            Files.write(spilledFile, content);
+            assertThat(service.getItems("s1")).containsExactly(TOMATO);
+            assertThat(spilledFile).doesNotExist();
+        }
+    }
+
+    @Test
+    @DisplayName("Leaves other files in the spill directory alone")
+    void leavesOtherFilesAlone() throws Exception {
+        Files.writeString(directory.resolve("old.cart"), "x");
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofHours(2), Duration.ofMinutes(15), directory)) {
+            service.addItem("s1", TOMATO);
+            now.set(START.plusMinutes(15));
+            service.evictIdleCarts();
+            assertThat(service.getSpilledCartCount()).isEqualTo(1);
+        }
+        assertThat(directory.resolve("old.cart")).hasContent("x");
+    }
+
+    @Test
+    @DisplayName("Spilled carts survive a restart until the ttl has passed")
+    void spilledCartsSurviveRestart() throws Exception {
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofHours(2), Duration.ofMinutes(15), directory)) {
+            service.addItem("s1", TOMATO);
+            service.addItem("s2", APPLE);
+            now.set(START.plusMinutes(15));
+            assertThat(service.evictIdleCarts()).isEqualTo(2);
+        }
+        try (ShoppingCartService restarted = ShoppingCartService.start(clock, Duration.ofHours(2), Duration.ofMinutes(15), directory)) {
+            assertThat(restarted.getSpilledCartCount()).isEqualTo(2);
+            assertThat(restarted.getItems("s1")).containsExactly(TOMATO);
+
+            now.set(START.plusMinutes(15).plusHours(2));
+            restarted.evictIdleCarts();
+            assertThat(restarted.getItems("s2")).isEmpty();
+            assertThat(restarted.getSpilledCartCount()).isZero();
+            try (var files = Files.list(directory.resolve("carts"))) {
+                assertThat(files).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent updates from many sessions are all kept")
+    void concurrentUpdatesAreKept() throws Exception {
+        int sessions = 50;
+        int itemsPerSession = 200;
+        try (ShoppingCartService service = ShoppingCartService.start(clock, Duration.ofDays(1), Duration.ofMinutes(15), directory);
+             ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                String sessionId = "s" + s;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < itemsPerSession; i++) {
+                        service.addItem(sessionId, new Item(i % 10, "Vara", BigDecimal.ONE, 0, 1));
+                    }
+                }));
+            }
+            // Spill medan korgarna ändras får inte tappa några rader
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    now.set(START.plusMinutes(15L * (i + 1)));
+                    service.evictIdleCarts();
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            for (int s = 0; s < sessions; s++) {
+                assertThat(service.getItemTotal("s" + s)).isEqualByComparingTo(String.valueOf(itemsPerSession));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Spill time must be shorter than the ttl")
+    void rejectsSpillAfterTtl() {
+        assertThatThrownBy(() -> ShoppingCartService.start(clock, Duration.ofMinutes(10), Duration.ofMinutes(10), directory))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -65,5 +65,50 @@ class ShoppingCartTest {
         assertThat(shoppingCart.getCart().getFirst().quantity()).isEqualTo(20);
     }
 
+    @Test
+    @DisplayName("Adding more of an item keeps cart order")
+    void addingMoreOfAnItemKeepsOrder() {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.addItem(TOMATO);
+        shoppingCart.addItem(APPLE);
+        shoppingCart.addItem(TOMATO);
+        assertThat(shoppingCart.getCart()).extracting(Item::barcode).containsExactly(5085, 1500);
+    }
+
+    @Test
+    @DisplayName("Large cart keeps every distinct item")
+    void largeCartKeepsEveryItem() {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        for (int i = 0; i < 10_000; i++) {
+            shoppingCart.addItem(new Item(i, "Vara " + i, BigDecimal.ONE, 0, 1));
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            shoppingCart.removeItem(new Item(i, "Vara " + i, BigDecimal.ONE, 0, 1));
+        }
+        assertThat(shoppingCart.getCart()).hasSize(5_000);
+        assertThat(shoppingCart.getCart().getFirst().barcode()).isEqualTo(1);
+    }
 
+    @Test
+    @DisplayName("Total follows removals and merges")
+    void totalFollowsRemovalsAndMerges() {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        Item cucumber = new Item(668, "Cucumber", BigDecimal.valueOf(10L), 50, 2);
+        shoppingCart.addItem(TOMATO);
+        shoppingCart.addItem(cucumber);
+        shoppingCart.addItem(cucumber);
+        assertThat(shoppingCart.getItemTotal()).isEqualTo(BigDecimal.valueOf(70.0));
+        shoppingCart.removeItem(cucumber);
+        assertThat(shoppingCart.getItemTotal()).isEqualTo(BigDecimal.valueOf(50));
+        shoppingCart.removeItem(TOMATO);
+        assertThat(shoppingCart.getItemTotal()).isEqualTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    @DisplayName("Discount is calculated exactly")
+    void discountIsExact() {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.addItem(new Item(1, "Cheese", new BigDecimal("19.99"), 7, 3));
+        assertThat(shoppingCart.getItemTotal()).isEqualByComparingTo("55.7721");
+    }
 }
@@ -0,0 +1,66 @@
+package com.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class TimeOrderedBookingIdGeneratorTest {
+
+    @Test
+    @DisplayName("Ids are version 7 UUIDs carrying the clock time")
+    void idsAreVersionSevenUuids() {
+        TimeOrderedBookingIdGenerator generator = new TimeOrderedBookingIdGenerator(() -> 1_893_456_000_000L);
+        UUID id = UUID.fromString(generator.nextId());
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(1_893_456_000_000L);
+    }
+
+    @Test
+    @DisplayName("Ids increase within a thread even when the clock stands still or goes back")
+    void idsIncreaseWithinThread() {
+        AtomicLong clock = new AtomicLong(1_893_456_000_000L);
+        TimeOrderedBookingIdGenerator generator = new TimeOrderedBookingIdGenerator(clock::get);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+            if (i == 5_000) {
+                clock.addAndGet(-60_000);
+            }
+        }
+        assertThat(ids).isSortedAccordingTo(String::compareTo).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Ids are unique across threads")
+    void idsAreUniqueAcrossThreads() throws Exception {
+        TimeOrderedBookingIdGenerator generator = new TimeOrderedBookingIdGenerator();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(ids).hasSize(80_000);
+    }
+}
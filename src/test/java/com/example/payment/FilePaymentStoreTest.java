@@ -0,0 +1,60 @@
+package com.example.payment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class FilePaymentStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 9, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Finds stored payments after reopening")
+    void findsPaymentsAfterReopen() {
+        PaymentRecord paid = new PaymentRecord("p1", new BigDecimal("10.50"), PaymentStatus.SUCCESS, "tx-1", NOW);
+        PaymentRecord declined = new PaymentRecord("p2", new BigDecimal("9999"), PaymentStatus.DECLINED, null, NOW);
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            store.saveAll(List.of(paid, declined));
+            assertThat(store.getBatchCount()).isEqualTo(1);
+        }
+
+        try (FilePaymentStore reopened = new FilePaymentStore(directory)) {
+            assertThat(reopened.findById("p1")).contains(paid);
+            assertThat(reopened.findById("p2")).contains(declined);
+            assertThat(reopened.findById("p3")).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Drops a torn batch at the end of the file")
+    void dropsTornBatch() throws IOException {
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            store.saveAll(List.of(new PaymentRecord("p1", BigDecimal.ONE, PaymentStatus.SUCCESS, "tx-1", NOW)));
+        }
+        Files.write(directory.resolve("payments.log"), new byte[]{0, 0, 0, 99, 0, 0}, StandardOpenOption.APPEND);
+
+        try (FilePaymentStore reopened = new FilePaymentStore(directory)) {
+            assertThat(reopened.size()).isEqualTo(1);
+            reopened.saveAll(List.of(new PaymentRecord("p2", BigDecimal.TEN, PaymentStatus.FAILED, null, NOW)));
+        }
+
+        try (FilePaymentStore reopened = new FilePaymentStore(directory)) {
+            assertThat(reopened.findById("p2")).isPresent();
+            assertThat(reopened.size()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.payment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.*;
+
+
+class IdempotencyCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    @Test
+    @DisplayName("Returns the same future for a repeated key")
+    void returnsSameFuture() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(5));
+        CompletableFuture<PaymentRecord> first = cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new);
+        CompletableFuture<PaymentRecord> second = cache.getOrStart("k1", new BigDecimal("10.00"), NOW, CompletableFuture::new);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Rejects a repeated key with another amount")
+    void rejectsOtherAmount() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(5));
+        cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new);
+
+        assertThatThrownBy(() -> cache.getOrStart("k1", BigDecimal.ONE, NOW, CompletableFuture::new))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Forgets keys after the time to live")
+    void forgetsExpiredKeys() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(5));
+        CompletableFuture<PaymentRecord> first = cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new);
+
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW.plusMinutes(4), CompletableFuture::new)).isSameAs(first);
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW.plusMinutes(5), CompletableFuture::new)).isNotSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Evicts the oldest completed key when full")
+    void evictsOldestCompletedWhenFull() {
+        IdempotencyCache cache = new IdempotencyCache(2, Duration.ofMinutes(5));
+        CompletableFuture<PaymentRecord> inFlight = cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new);
+        CompletableFuture<PaymentRecord> done = cache.getOrStart("k2", BigDecimal.TEN, NOW,
+                () -> CompletableFuture.completedFuture(null));
+        cache.getOrStart("k3", BigDecimal.TEN, NOW, CompletableFuture::new);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new)).isSameAs(inFlight);
+        CompletableFuture<PaymentRecord> third = cache.getOrStart("k3", BigDecimal.TEN, NOW, CompletableFuture::new);
+        third.complete(null);
+        assertThat(cache.getOrStart("k2", BigDecimal.TEN, NOW, CompletableFuture::new)).isNotSameAs(done);
+    }
+
+    @Test
+    @DisplayName("Does not evict a payment whose outcome is unknown")
+    void keepsUnknownPaymentWhenFull() {
+        IdempotencyCache cache = new IdempotencyCache(1, Duration.ofMinutes(5));
+        PaymentRecord unanswered = new PaymentRecord("k1", BigDecimal.TEN, PaymentStatus.UNKNOWN, null, NOW);
+        CompletableFuture<PaymentRecord> first = cache.getOrStart("k1", BigDecimal.TEN, NOW,
+                () -> CompletableFuture.completedFuture(unanswered));
+
+        assertThatThrownBy(() -> cache.getOrStart("k2", BigDecimal.TEN, NOW, CompletableFuture::new))
+                .isInstanceOf(PaymentRejectedException.class);
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new)).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Rejects a new key when every cached payment is in flight")
+    void rejectsNewKeyWhenAllInFlight() {
+        IdempotencyCache cache = new IdempotencyCache(1, Duration.ofMinutes(5));
+        cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new);
+
+        assertThatThrownBy(() -> cache.getOrStart("k2", BigDecimal.TEN, NOW, CompletableFuture::new))
+                .isInstanceOf(PaymentRejectedException.class);
+    }
+
+    @Test
+    @DisplayName("Forgets a payment rejected before the gateway was called")
+    void forgetsRejectedPayment() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(5));
+        CompletableFuture<PaymentRecord> started = new CompletableFuture<>();
+        CompletableFuture<PaymentRecord> first = cache.getOrStart("k1", BigDecimal.TEN, NOW, () -> started);
+        started.completeExceptionally(new PaymentRejectedException("Skrivkön för betalningar är full eller stängd"));
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new)).isNotSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Keeps a payment that failed after the gateway was called")
+    void keepsPaymentFailedAfterCharge() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(5));
+        CompletableFuture<PaymentRecord> started = new CompletableFuture<>();
+        CompletableFuture<PaymentRecord> first = cache.getOrStart("k1", BigDecimal.TEN, NOW, () -> started);
+        started.completeExceptionally(new IllegalStateException("Disk full"));
+
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new)).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Starting a payment does not hold up other keys")
+    void startRunsOutsideLock() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(5));
+        CountDownLatch starting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slow = Thread.ofVirtual().start(() -> cache.getOrStart("k1", BigDecimal.TEN, NOW, () -> {
+            starting.countDown();
+            awaitUninterruptibly(release);
+            return new CompletableFuture<>();
+        }));
+        starting.await();
+
+        assertThat(cache.getOrStart("k2", BigDecimal.TEN, NOW, CompletableFuture::new)).isNotNull();
+        assertThat(cache.getOrStart("k1", BigDecimal.TEN, NOW, CompletableFuture::new)).isNotDone();
+        release.countDown();
+        slow.join();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
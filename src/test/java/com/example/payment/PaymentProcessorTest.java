@@ -0,0 +1,244 @@
+package com.example.payment;
+
+import com.example.TimeProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+class PaymentProcessorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private static final TimeProvider CLOCK = () -> NOW;
+    private static final BigDecimal LIMIT = new BigDecimal("1000.00");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Stores a successful payment and sends a confirmation")
+    void storesAndConfirmsSuccessfulPayment() throws Exception {
+        PaymentConfirmationSender sender = mock(PaymentConfirmationSender.class);
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            PaymentRecord record;
+            try (PaymentProcessor processor = PaymentProcessor.start(
+                    new StubPaymentGateway(Duration.ofMillis(1), LIMIT), store, sender, CLOCK)) {
+                record = processor.processPayment(new BigDecimal("99.50"), "user@example.com").get(5, TimeUnit.SECONDS);
+            }
+
+            assertThat(record.status()).isEqualTo(PaymentStatus.SUCCESS);
+            assertThat(record.transactionId()).isNotNull();
+            assertThat(record.createdAt()).isEqualTo(NOW);
+            assertThat(store.findById(record.paymentId())).contains(record);
+            verify(sender).sendPaymentConfirmation("user@example.com", new BigDecimal("99.50"));
+        }
+    }
+
+    @Test
+    @DisplayName("Declined and failed payments are stored without confirmation")
+    void declinedAndFailedPaymentsAreStored() throws Exception {
+        PaymentConfirmationSender sender = mock(PaymentConfirmationSender.class);
+        PaymentGateway broken = (paymentId, amount) -> CompletableFuture.failedFuture(new IllegalStateException("Nere"));
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            try (PaymentProcessor declining = PaymentProcessor.start(
+                    new StubPaymentGateway(Duration.ZERO, LIMIT), store, sender, CLOCK);
+                 PaymentProcessor failing = PaymentProcessor.start(broken, store, sender, CLOCK)) {
+                PaymentRecord declined = declining.processPayment(new BigDecimal("5000"), "a@example.com").get(5, TimeUnit.SECONDS);
+                PaymentRecord failed = failing.processPayment(BigDecimal.TEN, "b@example.com").get(5, TimeUnit.SECONDS);
+
+                assertThat(declined.status()).isEqualTo(PaymentStatus.DECLINED);
+                assertThat(failed.status()).isEqualTo(PaymentStatus.FAILED);
+                assertThat(failed.transactionId()).isNull();
+                assertThat(store.size()).isEqualTo(2);
+                assertThat(declining.getDeclinedCount()).isEqualTo(1);
+                assertThat(failing.getFailedCount()).isEqualTo(1);
+            }
+            verifyNoInteractions(sender);
+        }
+    }
+
+    @Test
+    @DisplayName("A gateway that never answers is stored as unknown and the key is not charged again")
+    void gatewayTimeoutIsUnknown() throws Exception {
+        List<String> charged = new ArrayList<>();
+        PaymentGateway silent = (paymentId, amount) -> {
+            charged.add(paymentId);
+            return new CompletableFuture<>();
+        };
+        PaymentConfirmationSender sender = mock(PaymentConfirmationSender.class);
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            try (PaymentProcessor processor = PaymentProcessor.start(silent, store, sender,
+                    CLOCK, Duration.ofMillis(20), 10, 10, 10, 1)) {
+                PaymentRecord record = processor.processPayment("order-1", BigDecimal.ONE, "user@example.com")
+                        .get(5, TimeUnit.SECONDS);
+                PaymentRecord retried = processor.processPayment("order-1", BigDecimal.ONE, "user@example.com")
+                        .get(5, TimeUnit.SECONDS);
+
+                assertThat(record.status()).isEqualTo(PaymentStatus.UNKNOWN);
+                assertThat(retried).isSameAs(record);
+                assertThat(charged).containsExactly("order-1");
+                assertThat(processor.getUnknownCount()).isEqualTo(1);
+                assertThat(processor.getFailedCount()).isZero();
+            }
+            assertThat(store.findById("order-1")).map(PaymentRecord::status).contains(PaymentStatus.UNKNOWN);
+        }
+        verifyNoInteractions(sender);
+    }
+
+    @Test
+    @DisplayName("Concurrent payments are written in fewer batches than payments")
+    void concurrentPaymentsAreGroupCommitted() throws Exception {
+        int payments = 500;
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            try (PaymentProcessor processor = PaymentProcessor.start(new StubPaymentGateway(Duration.ofMillis(20), LIMIT),
+                    store, mock(PaymentConfirmationSender.class), CLOCK)) {
+                List<CompletableFuture<PaymentRecord>> pending = new ArrayList<>();
+                for (int i = 0; i < payments; i++) {
+                    pending.add(processor.processPayment(BigDecimal.ONE, "user" + i + "@example.com"));
+                }
+                CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+                assertThat(processor.getSucceededCount()).isEqualTo(payments);
+            }
+            assertThat(store.size()).isEqualTo(payments);
+            assertThat(store.getBatchCount()).isLessThan(payments);
+        }
+    }
+
+    @Test
+    @DisplayName("A failing store is retried until the payment is stored")
+    void storeFailureIsRetried() throws Exception {
+        PaymentStore store = mock(PaymentStore.class);
+        doThrow(new IllegalStateException("Disk full"))
+                .doThrow(new IllegalStateException("Disk full"))
+                .doNothing()
+                .when(store).saveAll(anyList());
+        PaymentConfirmationSender sender = mock(PaymentConfirmationSender.class);
+        try (PaymentProcessor processor = PaymentProcessor.start(
+                new StubPaymentGateway(Duration.ZERO, LIMIT), store, sender, CLOCK)) {
+            PaymentRecord record = processor.processPayment(BigDecimal.ONE, "user@example.com").get(5, TimeUnit.SECONDS);
+
+            assertThat(record.status()).isEqualTo(PaymentStatus.SUCCESS);
+            assertThat(processor.getWriteRetryCount()).isEqualTo(2);
+        }
+        verify(store, times(3)).saveAll(anyList());
+        verify(sender).sendPaymentConfirmation("user@example.com", BigDecimal.ONE);
+    }
+
+    @Test
+    @DisplayName("A full write queue rejects the payment before the customer is charged")
+    void fullWriteQueueRejectsBeforeCharging() throws Exception {
+        CompletableFuture<GatewayResponse> answer = new CompletableFuture<>();
+        List<String> charged = new ArrayList<>();
+        PaymentGateway slow = (paymentId, amount) -> {
+            charged.add(paymentId);
+            return answer;
+        };
+        PaymentStore store = mock(PaymentStore.class);
+        try (PaymentProcessor processor = PaymentProcessor.start(slow, store, mock(PaymentConfirmationSender.class),
+                CLOCK, Duration.ofSeconds(5), 1, 10, 10, 1)) {
+            CompletableFuture<PaymentRecord> first = processor.processPayment(BigDecimal.ONE, "a@example.com");
+            CompletableFuture<PaymentRecord> second = processor.processPayment(BigDecimal.ONE, "b@example.com");
+
+            assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                    .hasRootCauseMessage("Skrivkön för betalningar är full eller stängd");
+            assertThat(charged).hasSize(1);
+            answer.complete(new GatewayResponse(true, "tx-1"));
+            assertThat(first.get(5, TimeUnit.SECONDS).status()).isEqualTo(PaymentStatus.SUCCESS);
+        }
+    }
+
+    @Test
+    @DisplayName("Closing waits for payments still at the gateway and stores them")
+    void closeStoresPaymentsPendingAtGateway() throws Exception {
+        CompletableFuture<GatewayResponse> answer = new CompletableFuture<>();
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            PaymentProcessor processor = PaymentProcessor.start((paymentId, amount) -> answer, store,
+                    mock(PaymentConfirmationSender.class), CLOCK);
+            CompletableFuture<PaymentRecord> pending = processor.processPayment(BigDecimal.ONE, "user@example.com");
+            CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+                    .execute(() -> answer.complete(new GatewayResponse(true, "tx-1")));
+            processor.close();
+
+            assertThat(pending).isCompleted();
+            assertThat(store.findById(pending.get().paymentId())).contains(pending.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent retries with the same idempotency key charge once")
+    void concurrentRetriesChargeOnce() throws Exception {
+        StubPaymentGateway gateway = new StubPaymentGateway(Duration.ofMillis(50), LIMIT);
+        PaymentConfirmationSender sender = mock(PaymentConfirmationSender.class);
+        try (FilePaymentStore store = new FilePaymentStore(directory)) {
+            try (PaymentProcessor processor = PaymentProcessor.start(gateway, store, sender, CLOCK)) {
+                List<CompletableFuture<PaymentRecord>> retries = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    retries.add(processor.processPayment("order-42", new BigDecimal("99.50"), "user@example.com"));
+                }
+                PaymentRecord first = retries.get(0).get(5, TimeUnit.SECONDS);
+                for (CompletableFuture<PaymentRecord> retry : retries) {
+                    assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo(first);
+                }
+                assertThat(processor.processPayment("order-42", new BigDecimal("99.50"), "user@example.com")
+                        .get(5, TimeUnit.SECONDS)).isEqualTo(first);
+                assertThat(processor.getDeduplicatedCount()).isEqualTo(100);
+            }
+            assertThat(gateway.getChargeCount()).isEqualTo(1);
+            assertThat(store.size()).isEqualTo(1);
+            verify(sender, times(1)).sendPaymentConfirmation("user@example.com", new BigDecimal("99.50"));
+        }
+    }
+
+    @Test
+    @DisplayName("The idempotency key is the payment id at the gateway")
+    void idempotencyKeyIsPassedToGateway() throws Exception {
+        List<String> paymentIds = new ArrayList<>();
+        PaymentGateway recording = (paymentId, amount) -> {
+            paymentIds.add(paymentId);
+            return CompletableFuture.completedFuture(new GatewayResponse(true, "tx-1"));
+        };
+        try (PaymentProcessor processor = PaymentProcessor.start(recording, mock(PaymentStore.class),
+                mock(PaymentConfirmationSender.class), CLOCK)) {
+            PaymentRecord record = processor.processPayment("order-7", BigDecimal.ONE, "user@example.com").get(5, TimeUnit.SECONDS);
+
+            assertThat(paymentIds).containsExactly("order-7");
+            assertThat(record.paymentId()).isEqualTo("order-7");
+        }
+    }
+
+    @Test
+    @DisplayName("Different idempotency keys are charged separately")
+    void differentKeysChargeSeparately() throws Exception {
+        StubPaymentGateway gateway = new StubPaymentGateway(Duration.ZERO, LIMIT);
+        try (PaymentProcessor processor = PaymentProcessor.start(gateway, mock(PaymentStore.class),
+                mock(PaymentConfirmationSender.class), CLOCK)) {
+            PaymentRecord first = processor.processPayment("order-1", BigDecimal.ONE, "user@example.com").get(5, TimeUnit.SECONDS);
+            PaymentRecord second = processor.processPayment("order-2", BigDecimal.ONE, "user@example.com").get(5, TimeUnit.SECONDS);
+
+            assertThat(first.paymentId()).isNotEqualTo(second.paymentId());
+            assertThat(gateway.getChargeCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects non-positive amounts")
+    void rejectsNonPositiveAmount() throws Exception {
+        try (PaymentProcessor processor = PaymentProcessor.start(new StubPaymentGateway(Duration.ZERO, LIMIT),
+                mock(PaymentStore.class), mock(PaymentConfirmationSender.class), CLOCK)) {
+            assertThatThrownBy(() -> processor.processPayment(BigDecimal.ZERO, "user@example.com"))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}